@@ -0,0 +1,332 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lightweight latency instrumentation for the to-do list.
+ *
+ * Each {@link Metric} owns a log-linear latency histogram and a matching JFR event type.
+ * Monitoring is off unless started with {@code -Dtodo.perf=true} or switched on from the
+ * diagnostics overlay; while off, {@link #begin(Metric)} returns {@code null} and nothing
+ * else is touched.
+ */
+final class PerfMonitor {
+
+    enum Metric {
+        EDT_EVENT("edt.event", "EDT event"),
+        LIST_REFRESH("list.refresh.full", "List refresh"),
+        LIST_PARTIAL_REFRESH("list.refresh.partial", "Card refresh"),
+        TASKS_LOAD("tasks.load", "Load tasks"),
+        TASKS_SAVE("tasks.save", "Save tasks"),
+        PAINT_FRAME("paint.frame", "Paint frame");
+
+        final String key;
+        final String label;
+
+        Metric(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        PerfEvent newEvent() {
+            switch (this) {
+                case EDT_EVENT:
+                    return new EdtEventDispatch();
+                case LIST_REFRESH:
+                case LIST_PARTIAL_REFRESH:
+                    return new ListRefresh();
+                case TASKS_LOAD:
+                case TASKS_SAVE:
+                    return new TasksIo();
+                default:
+                    return new PaintFrame();
+            }
+        }
+    }
+
+    static final String METRICS_FILE = "perf-metrics.json";
+
+    /** Whether monitoring was requested on the command line; the overlay returns to this when closed. */
+    static final boolean ENABLED_BY_PROPERTY = Boolean.getBoolean("todo.perf");
+
+    private static volatile boolean enabled = ENABLED_BY_PROPERTY;
+    private static volatile boolean everEnabled = ENABLED_BY_PROPERTY;
+    private static final Map<Metric, LatencyHistogram> histograms = new EnumMap<>(Metric.class);
+
+    static {
+        for (Metric metric : Metric.values()) {
+            histograms.put(metric, new LatencyHistogram());
+        }
+    }
+
+    private PerfMonitor() {
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean on) {
+        enabled = on;
+        everEnabled |= on;
+    }
+
+    /**
+     * Hooks the EDT event queue and the repaint manager so that event dispatch and
+     * paint passes are timed. Must be called once, before the UI is created.
+     */
+    static void install() {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new TimedEventQueue());
+        RepaintManager.setCurrentManager(new TimedRepaintManager());
+    }
+
+    static Sample begin(Metric metric) {
+        return enabled ? new Sample(metric) : null;
+    }
+
+    static void end(Sample sample) {
+        end(sample, null);
+    }
+
+    static void end(Sample sample, String detail) {
+        if (sample != null) {
+            sample.end(detail);
+        }
+    }
+
+    static LatencyHistogram histogram(Metric metric) {
+        return histograms.get(metric);
+    }
+
+    static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /** Writes all histograms as JSON if monitoring is (or was switched) on. */
+    static void dumpIfEnabled() {
+        if (!everEnabled) {
+            return;
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(METRICS_FILE), StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    static String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"unit\": \"us\",\n  \"metrics\": {");
+        boolean first = true;
+        for (Metric metric : Metric.values()) {
+            LatencyHistogram.Snapshot s = histograms.get(metric).snapshot();
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    \"").append(metric.key).append("\": {")
+                    .append("\"count\": ").append(s.count)
+                    .append(", \"mean\": ").append(micros(s.mean))
+                    .append(", \"p50\": ").append(micros(s.p50))
+                    .append(", \"p90\": ").append(micros(s.p90))
+                    .append(", \"p99\": ").append(micros(s.p99))
+                    .append(", \"p999\": ").append(micros(s.p999))
+                    .append(", \"max\": ").append(micros(s.max))
+                    .append('}');
+        }
+        return sb.append("\n  }\n}\n").toString();
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    /** An in-flight measurement: wall-clock start plus the JFR event being timed. */
+    static final class Sample {
+        private final Metric metric;
+        private final long start;
+        private final PerfEvent event;
+
+        private Sample(Metric metric) {
+            this.metric = metric;
+            this.event = metric.newEvent();
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        private void end(String detail) {
+            long elapsed = System.nanoTime() - start;
+            histograms.get(metric).record(elapsed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.metric = metric.key;
+                event.detail = detail;
+                event.commit();
+            }
+        }
+    }
+
+    /** Log-linear histogram: 16 sub-buckets per power of two, roughly 6% relative error. */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+
+        private final long[] counts = new long[(64 - SUB_BITS + 1) * SUB_COUNT];
+        private long total;
+        private long sum;
+        private long max;
+
+        synchronized void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts[indexOf(value)]++;
+            total++;
+            sum += value;
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        synchronized void reset() {
+            Arrays.fill(counts, 0);
+            total = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(total, total == 0 ? 0 : sum / total,
+                    valueAt(0.50), valueAt(0.90), valueAt(0.99), valueAt(0.999), max);
+        }
+
+        synchronized long count() {
+            return total;
+        }
+
+        private long valueAt(double percentile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int indexOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+            return (shift + 1) * SUB_COUNT + sub;
+        }
+
+        private static long upperBound(int index) {
+            int shift = index / SUB_COUNT - 1;
+            int sub = index % SUB_COUNT;
+            if (shift < 0) {
+                return sub;
+            }
+            return ((long) (SUB_COUNT + sub) << shift) + (1L << shift) - 1;
+        }
+
+        static final class Snapshot {
+            final long count;
+            final long mean;
+            final long p50;
+            final long p90;
+            final long p99;
+            final long p999;
+            final long max;
+
+            Snapshot(long count, long mean, long p50, long p90, long p99, long p999, long max) {
+                this.count = count;
+                this.mean = mean;
+                this.p50 = p50;
+                this.p90 = p90;
+                this.p99 = p99;
+                this.p999 = p999;
+                this.max = max;
+            }
+        }
+    }
+
+    // Event queue and repaint manager hooks
+    private static final class TimedEventQueue extends EventQueue {
+        @Override
+        protected void dispatchEvent(AWTEvent event) {
+            Sample sample = begin(Metric.EDT_EVENT);
+            try {
+                super.dispatchEvent(event);
+            } finally {
+                if (sample != null) {
+                    sample.end(event.getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    private static final class TimedRepaintManager extends RepaintManager {
+        @Override
+        public void paintDirtyRegions() {
+            Sample sample = begin(Metric.PAINT_FRAME);
+            try {
+                super.paintDirtyRegions();
+            } finally {
+                end(sample);
+            }
+        }
+    }
+
+    // JFR event types
+    @Category({"To-Do List"})
+    @StackTrace(false)
+    abstract static class PerfEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Detail")
+        String detail;
+    }
+
+    @Name("todolist.EdtEventDispatch")
+    @Label("EDT Event Dispatch")
+    @Description("Time spent dispatching one AWT event on the event dispatch thread")
+    static final class EdtEventDispatch extends PerfEvent {
+    }
+
+    @Name("todolist.ListRefresh")
+    @Label("Task List Refresh")
+    @Description("Rebuild of the whole task list or of a single task card")
+    static final class ListRefresh extends PerfEvent {
+    }
+
+    @Name("todolist.TasksIo")
+    @Label("Task Persistence")
+    @Description("Reading or writing the task file")
+    static final class TasksIo extends PerfEvent {
+    }
+
+    @Name("todolist.PaintFrame")
+    @Label("Paint Frame")
+    @Description("One RepaintManager pass over the dirty regions")
+    static final class PaintFrame extends PerfEvent {
+    }
+}
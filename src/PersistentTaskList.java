@@ -0,0 +1,235 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable, ordered collection of tasks keyed by task id.
+ *
+ * Backed by a path-copying AVL tree: every update returns a new version in O(log n) that shares
+ * all untouched nodes with the previous one, so a reader holding an old version always sees a
+ * consistent snapshot without locks or copies. Ids are handed out in creation order, which makes
+ * id order the display order. Each node also caches the size and completed count of its subtree.
+ */
+final class PersistentTaskList implements Iterable<ToDoListPureSwing.Task> {
+
+    static final PersistentTaskList EMPTY = new PersistentTaskList(null);
+
+    private static final class Node {
+        final ToDoListPureSwing.Task task;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size;
+        final int doneCount;
+
+        Node(ToDoListPureSwing.Task task, Node left, Node right) {
+            this.task = task;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+            this.doneCount = doneCount(left) + doneCount(right) + (task.isDone() ? 1 : 0);
+        }
+    }
+
+    private final Node root;
+
+    private PersistentTaskList(Node root) {
+        this.root = root;
+    }
+
+    static PersistentTaskList of(Iterable<ToDoListPureSwing.Task> tasks) {
+        PersistentTaskList list = EMPTY;
+        for (ToDoListPureSwing.Task task : tasks) {
+            list = list.with(task);
+        }
+        return list;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    int doneCount() {
+        return doneCount(root);
+    }
+
+    /** The largest id in the list, or 0 when empty. */
+    long maxId() {
+        Node node = root;
+        if (node == null) {
+            return 0;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.task.getId();
+    }
+
+    ToDoListPureSwing.Task get(long id) {
+        Node node = root;
+        while (node != null) {
+            long nodeId = node.task.getId();
+            if (id == nodeId) {
+                return node.task;
+            }
+            node = id < nodeId ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /** Zero-based position of the task with the given id, or -1. */
+    int indexOf(long id) {
+        Node node = root;
+        int index = 0;
+        while (node != null) {
+            long nodeId = node.task.getId();
+            if (id == nodeId) {
+                return index + size(node.left);
+            }
+            if (id < nodeId) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns a version containing {@code task}, replacing any task with the same id. */
+    PersistentTaskList with(ToDoListPureSwing.Task task) {
+        return new PersistentTaskList(insert(root, task));
+    }
+
+    /** Returns a version without the task with the given id. */
+    PersistentTaskList without(long id) {
+        Node newRoot = remove(root, id);
+        return newRoot == root ? this : new PersistentTaskList(newRoot);
+    }
+
+    ArrayList<ToDoListPureSwing.Task> toList() {
+        ArrayList<ToDoListPureSwing.Task> list = new ArrayList<>(size());
+        for (ToDoListPureSwing.Task task : this) {
+            list.add(task);
+        }
+        return list;
+    }
+
+    @Override
+    public Iterator<ToDoListPureSwing.Task> iterator() {
+        return new Iterator<ToDoListPureSwing.Task>() {
+            private final Deque<Node> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node node) {
+                for (; node != null; node = node.left) {
+                    stack.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public ToDoListPureSwing.Task next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack.pop();
+                pushLeft(node.right);
+                return node.task;
+            }
+        };
+    }
+
+    // AVL operations, copying only the path from the root to the change
+    private static Node insert(Node node, ToDoListPureSwing.Task task) {
+        if (node == null) {
+            return new Node(task, null, null);
+        }
+        long id = task.getId();
+        long nodeId = node.task.getId();
+        if (id == nodeId) {
+            return new Node(task, node.left, node.right);
+        }
+        if (id < nodeId) {
+            return balance(node.task, insert(node.left, task), node.right);
+        }
+        return balance(node.task, node.left, insert(node.right, task));
+    }
+
+    private static Node remove(Node node, long id) {
+        if (node == null) {
+            return null;
+        }
+        long nodeId = node.task.getId();
+        if (id < nodeId) {
+            Node left = remove(node.left, id);
+            return left == node.left ? node : balance(node.task, left, node.right);
+        }
+        if (id > nodeId) {
+            Node right = remove(node.right, id);
+            return right == node.right ? node : balance(node.task, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.task, node.left, remove(node.right, successor.task.getId()));
+    }
+
+    private static Node balance(ToDoListPureSwing.Task task, Node left, Node right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.task, left.left, left.right);
+            }
+            return rotateRight(task, left, right);
+        }
+        if (diff < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.task, right.left, right.right);
+            }
+            return rotateLeft(task, left, right);
+        }
+        return new Node(task, left, right);
+    }
+
+    private static Node rotateRight(ToDoListPureSwing.Task task, Node left, Node right) {
+        return new Node(left.task, left.left, new Node(task, left.right, right));
+    }
+
+    private static Node rotateLeft(ToDoListPureSwing.Task task, Node left, Node right) {
+        return new Node(right.task, new Node(task, left, right.left), right.right);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int doneCount(Node node) {
+        return node == null ? 0 : node.doneCount;
+    }
+}
@@ -0,0 +1,255 @@
+import javax.swing.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fires reminder and overdue notifications for every task with a due date from a single
+ * daemon thread.
+ *
+ * Pending notifications sit in a priority queue ordered by fire time; the thread sleeps until
+ * the head is due. Rescheduling a task marks its old entry cancelled (dropped lazily when it
+ * reaches the head), so edits and deletes cost O(log n); once cancelled entries outnumber live
+ * ones the heap is rebuilt, so it cannot fill up with far-future leftovers. Listener callbacks
+ * run on the EDT.
+ */
+final class ReminderScheduler {
+
+    interface Listener {
+        void reminderDue(ToDoListPureSwing.Task task);
+
+        void taskOverdue(ToDoListPureSwing.Task task);
+
+        void remindersMissed(List<ToDoListPureSwing.Task> tasks);
+    }
+
+    static final long REMINDER_LEAD_MINUTES = Long.getLong("todo.reminderLeadMinutes", 15);
+
+    // Upper bound on one sleep, so wall-clock jumps (suspend, clock changes) are noticed
+    private static final long MAX_WAIT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private enum Kind { REMIND, DUE }
+
+    private static final class Entry implements Comparable<Entry> {
+        final ToDoListPureSwing.Task task;
+        final Kind kind;
+        final long fireAt;
+        boolean cancelled;
+
+        Entry(ToDoListPureSwing.Task task, Kind kind, long fireAt) {
+            this.task = task;
+            this.kind = kind;
+            this.fireAt = fireAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(fireAt, other.fireAt);
+        }
+    }
+
+    private final Listener listener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<Long, Entry> pending = new HashMap<>();
+    private int cancelledCount; // cancelled entries still in the queue
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // Reminders due up to this time have been shown or reported
+    private volatile long remindedUntil;
+
+    /** {@code remindedUntil} is the value {@link #remindedUntil()} returned in the previous session. */
+    ReminderScheduler(Listener listener, long remindedUntil) {
+        this.listener = listener;
+        this.remindedUntil = remindedUntil;
+        this.worker = new Thread(this::run, "reminder-scheduler");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Replaces the whole schedule, e.g. right after loading. Reminders whose time passed while
+     * the app was closed, i.e. after {@link #remindedUntil()}, are reported once through
+     * {@link Listener#remindersMissed}. The heap is built in one O(n) pass rather than by n inserts.
+     */
+    void scheduleAll(Iterable<ToDoListPureSwing.Task> tasks) {
+        long now = System.currentTimeMillis();
+        List<Entry> entries = new ArrayList<>();
+        List<ToDoListPureSwing.Task> missed = new ArrayList<>();
+
+        for (ToDoListPureSwing.Task task : tasks) {
+            if (task.isDone() || task.getDueDate() == null) {
+                continue;
+            }
+            long due = toMillis(task.getDueDate());
+            long remindAt = reminderTime(due);
+            if (remindAt <= now && remindAt > remindedUntil) {
+                missed.add(task);
+            }
+            Entry entry = nextEntry(task, due, now, false);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        lock.lock();
+        try {
+            pending.clear();
+            for (Entry entry : entries) {
+                pending.put(entry.task.getId(), entry);
+            }
+            queue = new PriorityQueue<>(entries);
+            cancelledCount = 0;
+            remindedUntil = Math.max(remindedUntil, now);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        if (!missed.isEmpty()) {
+            SwingUtilities.invokeLater(() -> listener.remindersMissed(missed));
+        }
+    }
+
+    /**
+     * (Re)schedules one task after its due date or completion state changed. A due date set
+     * less than the lead time ahead gets its reminder right away.
+     */
+    void schedule(ToDoListPureSwing.Task task) {
+        Entry entry = null;
+        if (!task.isDone() && task.getDueDate() != null) {
+            entry = nextEntry(task, toMillis(task.getDueDate()), System.currentTimeMillis(), true);
+        }
+
+        lock.lock();
+        try {
+            Entry old = entry == null ? pending.remove(task.getId()) : pending.put(task.getId(), entry);
+            markCancelled(old);
+            if (entry != null) {
+                queue.add(entry);
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void cancel(long taskId) {
+        lock.lock();
+        try {
+            markCancelled(pending.remove(taskId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time up to which every reminder has been delivered; persist it across sessions. It moves
+     * forward as reminders fire, so saving it then keeps a crash from reporting them again.
+     */
+    long remindedUntil() {
+        return remindedUntil;
+    }
+
+    void shutdown() {
+        remindedUntil = Math.max(remindedUntil, System.currentTimeMillis());
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            Entry fired;
+            lock.lock();
+            try {
+                fired = awaitNext();
+                if (fired == null) {
+                    continue;
+                }
+                pending.remove(fired.task.getId());
+                if (fired.kind == Kind.REMIND) {
+                    remindedUntil = Math.max(remindedUntil, fired.fireAt);
+                    // Follow the reminder with the overdue notification at the due time itself
+                    Entry due = new Entry(fired.task, Kind.DUE, toMillis(fired.task.getDueDate()));
+                    pending.put(fired.task.getId(), due);
+                    queue.add(due);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            ToDoListPureSwing.Task task = fired.task;
+            if (fired.kind == Kind.REMIND) {
+                SwingUtilities.invokeLater(() -> listener.reminderDue(task));
+            } else {
+                SwingUtilities.invokeLater(() -> listener.taskOverdue(task));
+            }
+        }
+    }
+
+    // Called with the lock held; returns the next due entry, or null to re-check state
+    private Entry awaitNext() throws InterruptedException {
+        Entry head = queue.peek();
+        while (head != null && head.cancelled) {
+            queue.poll();
+            cancelledCount--;
+            head = queue.peek();
+        }
+        if (head == null) {
+            changed.await();
+            return null;
+        }
+        long wait = head.fireAt - System.currentTimeMillis();
+        if (wait > 0) {
+            changed.await(Math.min(wait, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+            return null;
+        }
+        return queue.poll();
+    }
+
+    // Called with the lock held
+    private void markCancelled(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.cancelled = true;
+        if (++cancelledCount > pending.size()) {
+            queue = new PriorityQueue<>(pending.values());
+            cancelledCount = 0;
+        }
+    }
+
+    // remindLate: inside the lead time, remind now instead of only marking the task overdue later
+    private static Entry nextEntry(ToDoListPureSwing.Task task, long due, long now, boolean remindLate) {
+        long remindAt = reminderTime(due);
+        if (remindAt > now) {
+            return new Entry(task, Kind.REMIND, remindAt);
+        }
+        if (remindLate && due > now) {
+            return new Entry(task, Kind.REMIND, now);
+        }
+        if (due > now) {
+            return new Entry(task, Kind.DUE, due);
+        }
+        return null;
+    }
+
+    private static long reminderTime(long due) {
+        return due - TimeUnit.MINUTES.toMillis(REMINDER_LEAD_MINUTES);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,400 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints in the style of Roaring bitmaps.
+ *
+ * Values are split by their high 16 bits into chunks. A chunk holding at most
+ * {@link #ARRAY_LIMIT} values is a sorted {@code char[]}; a denser chunk is a 65536-bit bitmap.
+ * Set operations work chunk by chunk, so sparse and dense data both stay small and fast.
+ * Instances are mutable through {@link #add}/{@link #remove}; {@link #and}, {@link #or} and
+ * {@link #andNot} return new bitmaps and leave their operands untouched.
+ */
+final class RoaringBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Object[] chunks = new Object[4]; // char[] array chunk or long[] bitmap chunk
+    private int[] cardinalities = new int[4];
+    private int size;
+
+    void add(int value) {
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int i = indexOfKey(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new char[4], 0);
+        }
+
+        Object chunk = chunks[i];
+        int card = cardinalities[i];
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[i]++;
+            }
+            return;
+        }
+
+        char[] values = (char[]) chunk;
+        int pos = Arrays.binarySearch(values, 0, card, low);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        if (card == ARRAY_LIMIT) {
+            long[] words = toWords(values, card);
+            words[low >>> 6] |= 1L << low;
+            chunks[i] = words;
+        } else {
+            if (card == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, card * 2));
+                chunks[i] = values;
+            }
+            System.arraycopy(values, pos, values, pos + 1, card - pos);
+            values[pos] = low;
+        }
+        cardinalities[i]++;
+    }
+
+    void remove(int value) {
+        int i = indexOfKey((char) (value >>> 16));
+        if (i < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object chunk = chunks[i];
+        int card = cardinalities[i];
+        if (chunk instanceof long[]) {
+            long[] words = (long[]) chunk;
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return;
+            }
+            words[low >>> 6] &= ~bit;
+            card--;
+            if (card <= ARRAY_LIMIT) {
+                chunks[i] = toValues(words, card);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int pos = Arrays.binarySearch(values, 0, card, low);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(values, pos + 1, values, pos, card - pos - 1);
+            card--;
+        }
+        if (card == 0) {
+            removeChunk(i);
+        } else {
+            cardinalities[i] = card;
+        }
+    }
+
+    boolean contains(int value) {
+        int i = indexOfKey((char) (value >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[i];
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, cardinalities[i], low) >= 0;
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Calls {@code action} for every value in ascending order, stopping after {@code limit}. */
+    void forEach(IntConsumer action, int limit) {
+        int remaining = limit;
+        for (int i = 0; i < size && remaining > 0; i++) {
+            int high = keys[i] << 16;
+            Object chunk = chunks[i];
+            if (chunk instanceof long[]) {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < BITMAP_WORDS && remaining > 0; w++) {
+                    for (long word = words[w]; word != 0 && remaining > 0; word &= word - 1) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        remaining--;
+                    }
+                }
+            } else {
+                char[] values = (char[]) chunk;
+                for (int v = 0; v < cardinalities[i] && remaining > 0; v++) {
+                    action.accept(high | values[v]);
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(keys[i], and(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], copy(chunks[i], cardinalities[i]));
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], copy(other.chunks[j], other.cardinalities[j]));
+                j++;
+            } else {
+                result.appendChunk(keys[i], or(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendChunk(keys[i], andNot(chunks[i], cardinalities[i], other.chunks[j], other.cardinalities[j]));
+            } else {
+                result.appendChunk(keys[i], copy(chunks[i], cardinalities[i]));
+            }
+        }
+        return result;
+    }
+
+    // Chunk-level operations; each returns {chunk, cardinality} packed as a Chunk
+    private static final class Chunk {
+        final Object data;
+        final int cardinality;
+
+        Chunk(Object data, int cardinality) {
+            this.data = data;
+            this.cardinality = cardinality;
+        }
+    }
+
+    private static Chunk and(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            long[] words = new long[BITMAP_WORDS];
+            int card = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = x[w] & y[w];
+                card += Long.bitCount(words[w]);
+            }
+            return fromWords(words, card);
+        }
+        if (a instanceof long[]) {
+            return filter((char[]) b, cardB, (long[]) a, true);
+        }
+        if (b instanceof long[]) {
+            return filter((char[]) a, cardA, (long[]) b, true);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[Math.min(cardA, cardB)];
+        int card = 0;
+        for (int i = 0, j = 0; i < cardA && j < cardB; ) {
+            if (x[i] < y[j]) {
+                i++;
+            } else if (x[i] > y[j]) {
+                j++;
+            } else {
+                out[card++] = x[i];
+                i++;
+                j++;
+            }
+        }
+        return new Chunk(out, card);
+    }
+
+    private static Chunk or(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[] || b instanceof long[] || cardA + cardB > ARRAY_LIMIT) {
+            long[] words = a instanceof long[] ? ((long[]) a).clone() : toWords((char[]) a, cardA);
+            if (b instanceof long[]) {
+                long[] y = (long[]) b;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] |= y[w];
+                }
+            } else {
+                char[] y = (char[]) b;
+                for (int v = 0; v < cardB; v++) {
+                    words[y[v] >>> 6] |= 1L << y[v];
+                }
+            }
+            int card = 0;
+            for (long word : words) {
+                card += Long.bitCount(word);
+            }
+            return fromWords(words, card);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[cardA + cardB];
+        int card = 0;
+        int i = 0;
+        int j = 0;
+        while (i < cardA || j < cardB) {
+            if (j >= cardB || (i < cardA && x[i] < y[j])) {
+                out[card++] = x[i++];
+            } else if (i >= cardA || x[i] > y[j]) {
+                out[card++] = y[j++];
+            } else {
+                out[card++] = x[i++];
+                j++;
+            }
+        }
+        return new Chunk(out, card);
+    }
+
+    private static Chunk andNot(Object a, int cardA, Object b, int cardB) {
+        if (a instanceof long[]) {
+            long[] words = ((long[]) a).clone();
+            if (b instanceof long[]) {
+                long[] y = (long[]) b;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= ~y[w];
+                }
+            } else {
+                char[] y = (char[]) b;
+                for (int v = 0; v < cardB; v++) {
+                    words[y[v] >>> 6] &= ~(1L << y[v]);
+                }
+            }
+            int card = 0;
+            for (long word : words) {
+                card += Long.bitCount(word);
+            }
+            return fromWords(words, card);
+        }
+        if (b instanceof long[]) {
+            return filter((char[]) a, cardA, (long[]) b, false);
+        }
+        char[] x = (char[]) a;
+        char[] y = (char[]) b;
+        char[] out = new char[cardA];
+        int card = 0;
+        for (int i = 0, j = 0; i < cardA; i++) {
+            while (j < cardB && y[j] < x[i]) {
+                j++;
+            }
+            if (j >= cardB || y[j] != x[i]) {
+                out[card++] = x[i];
+            }
+        }
+        return new Chunk(out, card);
+    }
+
+    // Keeps the array values that are (or, with keep == false, are not) set in the bitmap
+    private static Chunk filter(char[] values, int card, long[] words, boolean keep) {
+        char[] out = new char[card];
+        int n = 0;
+        for (int v = 0; v < card; v++) {
+            boolean set = (words[values[v] >>> 6] & (1L << values[v])) != 0;
+            if (set == keep) {
+                out[n++] = values[v];
+            }
+        }
+        return new Chunk(out, n);
+    }
+
+    private static Chunk copy(Object chunk, int card) {
+        return new Chunk(chunk instanceof long[] ? ((long[]) chunk).clone() : Arrays.copyOf((char[]) chunk, card), card);
+    }
+
+    private static Chunk fromWords(long[] words, int card) {
+        return card <= ARRAY_LIMIT ? new Chunk(toValues(words, card), card) : new Chunk(words, card);
+    }
+
+    private static long[] toWords(char[] values, int card) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int v = 0; v < card; v++) {
+            words[values[v] >>> 6] |= 1L << values[v];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int card) {
+        char[] values = new char[Math.max(card, 4)];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return values;
+    }
+
+    // Chunk directory
+    private int indexOfKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void appendChunk(char key, Chunk chunk) {
+        if (chunk.cardinality > 0) {
+            insertChunk(size, key, chunk.data, chunk.cardinality);
+        }
+    }
+
+    private void insertChunk(int i, char key, Object chunk, int card) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+            cardinalities = Arrays.copyOf(cardinalities, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        System.arraycopy(cardinalities, i, cardinalities, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        cardinalities[i] = card;
+        size++;
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        System.arraycopy(cardinalities, i + 1, cardinalities, i, size - i - 1);
+        size--;
+        chunks[size] = null;
+    }
+}
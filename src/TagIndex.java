@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-tag bitmaps over task ids, kept in step with the store on the EDT.
+ *
+ * Tags are words starting with {@code #} or {@code @} in the task text. Besides one bitmap per
+ * tag the index keeps bitmaps of all tasks and of completed tasks, so any filter expression
+ * is answered with bitmap AND/OR/ANDNOT and never looks at the tasks themselves.
+ *
+ * Filter syntax: tags, {@code done}, {@code undone}, {@code AND} / {@code &} (or just a space),
+ * {@code OR} / {@code |}, {@code NOT} / {@code !} and parentheses, e.g.
+ * {@code #backend (@alice|@bob) !done}. NOT binds tightest, then AND, then OR.
+ */
+final class TagIndex {
+
+    private static final Pattern TAG = Pattern.compile("[#@][\\p{L}\\p{N}_\\-]+");
+
+    // Deepest nesting of NOT and parentheses a filter may use; the parser is recursive
+    private static final int MAX_NESTING = 100;
+
+    private final Map<String, RoaringBitmap> tags = new HashMap<>();
+    private RoaringBitmap all = new RoaringBitmap();
+    private RoaringBitmap done = new RoaringBitmap();
+
+    static Set<String> parseTags(String text) {
+        Set<String> found = new LinkedHashSet<>();
+        Matcher matcher = TAG.matcher(text);
+        while (matcher.find()) {
+            found.add(matcher.group().toLowerCase(Locale.ROOT));
+        }
+        return found;
+    }
+
+    /** Applies a store change; {@code before} is the version the index currently reflects. */
+    void apply(PersistentTaskList before, PersistentTaskList after, Set<Long> changedIds) {
+        if (changedIds == null) {
+            rebuild(after);
+            return;
+        }
+        for (long id : changedIds) {
+            ToDoListPureSwing.Task old = before.get(id);
+            ToDoListPureSwing.Task task = after.get(id);
+            if (old != null) {
+                remove(old);
+            }
+            if (task != null) {
+                add(task);
+            }
+        }
+    }
+
+    void rebuild(PersistentTaskList tasks) {
+        tags.clear();
+        all = new RoaringBitmap();
+        done = new RoaringBitmap();
+        for (ToDoListPureSwing.Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Evaluates a filter expression to the ids of the matching tasks.
+     *
+     * @throws IllegalArgumentException if the expression does not parse
+     */
+    RoaringBitmap evaluate(String query) {
+        Parser parser = new Parser(query);
+        RoaringBitmap result = parser.expression();
+        if (parser.peek() != null) {
+            throw new IllegalArgumentException("Unexpected '" + parser.peek() + "'");
+        }
+        return result;
+    }
+
+    private void add(ToDoListPureSwing.Task task) {
+        int ordinal = ordinal(task);
+        all.add(ordinal);
+        if (task.isDone()) {
+            done.add(ordinal);
+        }
+        for (String tag : parseTags(task.getText())) {
+            tags.computeIfAbsent(tag, t -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    private void remove(ToDoListPureSwing.Task task) {
+        int ordinal = ordinal(task);
+        all.remove(ordinal);
+        done.remove(ordinal);
+        for (String tag : parseTags(task.getText())) {
+            RoaringBitmap bitmap = tags.get(tag);
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    tags.remove(tag);
+                }
+            }
+        }
+    }
+
+    // Ids are handed out sequentially from 1 and stay far below 2^31
+    private static int ordinal(ToDoListPureSwing.Task task) {
+        return (int) task.getId();
+    }
+
+    // Recursive descent over the filter grammar, evaluating as it goes
+    private final class Parser {
+        private final List<String> tokens = new ArrayList<>();
+        private int pos;
+        private int nesting;
+
+        Parser(String query) {
+            // The symbol operators need no surrounding spaces, as in !@alice or #a|#b
+            Matcher matcher = Pattern.compile("[()!&|]|[^\\s()!&|]+").matcher(query);
+            while (matcher.find()) {
+                tokens.add(matcher.group());
+            }
+        }
+
+        String peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+
+        // expression := term (OR term)*
+        RoaringBitmap expression() {
+            RoaringBitmap result = term();
+            while (isKeyword(peek(), "OR", "|")) {
+                pos++;
+                result = result.or(term());
+            }
+            return result;
+        }
+
+        // term := factor ((AND)? factor)*
+        RoaringBitmap term() {
+            RoaringBitmap result = factor();
+            while (peek() != null && !peek().equals(")") && !isKeyword(peek(), "OR", "|")) {
+                if (isKeyword(peek(), "AND", "&")) {
+                    pos++;
+                }
+                result = result.and(factor());
+            }
+            return result;
+        }
+
+        // factor := NOT factor | '(' expression ')' | tag | done | undone
+        RoaringBitmap factor() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("Filter ends unexpectedly");
+            }
+            pos++;
+            if (isKeyword(token, "NOT", "!")) {
+                enter();
+                RoaringBitmap inner = factor();
+                nesting--;
+                return all.andNot(inner);
+            }
+            if (token.equals("(")) {
+                enter();
+                RoaringBitmap inner = expression();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("Missing ')'");
+                }
+                pos++;
+                nesting--;
+                return inner;
+            }
+            if (token.equalsIgnoreCase("done")) {
+                return done.and(all);
+            }
+            if (token.equalsIgnoreCase("undone")) {
+                return all.andNot(done);
+            }
+            if (TAG.matcher(token).matches()) {
+                RoaringBitmap bitmap = tags.get(token.toLowerCase(Locale.ROOT));
+                return bitmap == null ? new RoaringBitmap() : bitmap.and(all);
+            }
+            throw new IllegalArgumentException("Unknown filter term '" + token + "'");
+        }
+
+        private void enter() {
+            if (++nesting > MAX_NESTING) {
+                throw new IllegalArgumentException("Filter is nested too deeply");
+            }
+        }
+
+        private boolean isKeyword(String token, String word, String symbol) {
+            return token != null && (token.equalsIgnoreCase(word) || token.equals(symbol));
+        }
+    }
+}
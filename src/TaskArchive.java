@@ -0,0 +1,466 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only, block-compressed store for completed tasks that have left the live list.
+ *
+ * The archive file is a sequence of blocks, each holding up to {@link #BLOCK_SIZE} deflated
+ * records. A small index file keeps one entry per block (offset, size, record count, a
+ * Bloom filter over the words in the block and the block's task ids) so that searching only
+ * inflates blocks that can contain a match. The index is rebuilt from the archive if it is missing or
+ * out of step, e.g. after a crash between the two appends.
+ *
+ * Because the ids are kept, tasks offered again (the live list was not saved after they were
+ * archived) are recognised and not stored twice.
+ */
+final class TaskArchive {
+
+    static final int BLOCK_SIZE = 256;
+
+    private static final int BLOCK_MAGIC = 0x54444142; // "TDAB"
+    private static final int BLOOM_WORDS = 16;          // 1024 bits per block
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final int MAX_RAW_LENGTH = 64 << 20; // uncompressed bytes per block
+
+    /** A read-only view of a task as it was when archived. */
+    static final class ArchivedTask {
+        final long id;
+        final String text;
+        final LocalDateTime completedAt;
+        final LocalDateTime dueDate;
+
+        ArchivedTask(long id, String text, LocalDateTime completedAt, LocalDateTime dueDate) {
+            this.id = id;
+            this.text = text;
+            this.completedAt = completedAt;
+            this.dueDate = dueDate;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static final class BlockIndex {
+        final long offset;
+        final int length;
+        final int count;
+        final long[] bloom;
+
+        BlockIndex(long offset, int length, int count, long[] bloom) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+            this.bloom = bloom;
+        }
+    }
+
+    private final File archiveFile;
+    private final File indexFile;
+    private final List<BlockIndex> blocks = new ArrayList<>();
+    private RoaringBitmap archivedIds = new RoaringBitmap(); // ids are far below 2^31
+    private int totalCount;
+    private long maxId;
+
+    TaskArchive(String archivePath) {
+        this.archiveFile = new File(archivePath);
+        this.indexFile = new File(archivePath + ".idx");
+        try {
+            loadIndex();
+        } catch (IOException e) {
+            System.err.println("Rebuilding archive index: " + e.getMessage());
+            rebuildIndex();
+        }
+    }
+
+    synchronized int size() {
+        return totalCount;
+    }
+
+    /** Highest task id ever archived; new tasks must get larger ids. */
+    synchronized long maxId() {
+        return maxId;
+    }
+
+    /**
+     * Appends the given completed tasks as one or more compressed blocks, skipping tasks whose
+     * id is already archived. Either all of them are archived or, if this throws, none: the
+     * files are cut back to their previous length.
+     */
+    synchronized void append(List<ToDoListPureSwing.Task> tasks) throws IOException {
+        List<ToDoListPureSwing.Task> fresh = new ArrayList<>(tasks.size());
+        for (ToDoListPureSwing.Task task : tasks) {
+            if (!archivedIds.contains((int) task.getId())) {
+                fresh.add(task);
+            }
+        }
+        tasks = fresh;
+
+        long archiveLength = archiveFile.length();
+        long indexLength = indexFile.length();
+        int blockCount = blocks.size();
+        int count = totalCount;
+        long highestId = maxId;
+        try {
+            for (int from = 0; from < tasks.size(); from += BLOCK_SIZE) {
+                appendBlock(tasks.subList(from, Math.min(from + BLOCK_SIZE, tasks.size())));
+            }
+        } catch (IOException | RuntimeException e) {
+            blocks.subList(blockCount, blocks.size()).clear();
+            totalCount = count;
+            maxId = highestId;
+            for (ToDoListPureSwing.Task task : tasks) {
+                archivedIds.remove((int) task.getId());
+            }
+            try {
+                truncate(archiveFile, archiveLength);
+                truncate(indexFile, indexLength);
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns archived tasks containing every word of the query, newest block first.
+     * An empty query lists the most recently archived tasks.
+     */
+    synchronized List<ArchivedTask> search(String query, int limit) throws IOException {
+        List<String> words = tokenize(query);
+        List<ArchivedTask> results = new ArrayList<>();
+
+        try (RandomAccessFile in = new RandomAccessFile(archiveFile, "r")) {
+            for (int b = blocks.size() - 1; b >= 0 && results.size() < limit; b--) {
+                BlockIndex block = blocks.get(b);
+                if (block.count == 0 || !mightContainAll(block.bloom, words)) {
+                    continue;
+                }
+                List<ArchivedTask> records = readBlock(in, block);
+                for (int i = records.size() - 1; i >= 0 && results.size() < limit; i--) {
+                    ArchivedTask task = records.get(i);
+                    if (tokenize(task.text).containsAll(words)) {
+                        results.add(task);
+                    }
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        }
+        return results;
+    }
+
+    private void appendBlock(List<ToDoListPureSwing.Task> tasks) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        long[] bloom = new long[BLOOM_WORDS];
+
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            for (ToDoListPureSwing.Task task : tasks) {
+                out.writeLong(task.getId());
+                byte[] text = task.getText().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+                out.writeLong(toMillis(task.getCompletedAt()));
+                out.writeLong(toMillis(task.getDueDate()));
+                for (String word : tokenize(task.getText())) {
+                    addToBloom(bloom, word);
+                }
+            }
+        }
+        if (raw.size() > MAX_RAW_LENGTH) {
+            throw new IOException("Archive block too large: " + raw.size() + " bytes");
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+
+        long offset = archiveFile.length();
+        try (FileOutputStream fos = new FileOutputStream(archiveFile, true);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(BLOCK_MAGIC);
+            out.writeInt(tasks.size());
+            out.writeInt(raw.size());
+            out.writeInt(compressed.length);
+            out.write(compressed);
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        BlockIndex block = new BlockIndex(offset, compressed.length, tasks.size(), bloom);
+        long[] ids = new long[tasks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tasks.get(i).getId();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)))) {
+            writeIndexEntry(out, block, ids);
+        }
+        addBlock(block, ids);
+    }
+
+    private void addBlock(BlockIndex block, long[] ids) {
+        blocks.add(block);
+        totalCount += block.count;
+        for (long id : ids) {
+            archivedIds.add((int) id);
+            maxId = Math.max(maxId, id);
+        }
+    }
+
+    private List<ArchivedTask> readBlock(RandomAccessFile in, BlockIndex block) throws IOException {
+        in.seek(block.offset);
+        if (in.readInt() != BLOCK_MAGIC) {
+            throw new IOException("Corrupt archive block at offset " + block.offset);
+        }
+        int count = in.readInt();
+        int rawLength = in.readInt();
+        int length = in.readInt();
+        if (count < 0 || count > BLOCK_SIZE || rawLength < 0 || rawLength > MAX_RAW_LENGTH || length != block.length) {
+            throw new IOException("Corrupt archive block header at offset " + block.offset);
+        }
+        byte[] compressed = new byte[length];
+        in.readFully(compressed);
+
+        List<ArchivedTask> records = new ArrayList<>(count);
+        try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(inflate(compressed, rawLength)))) {
+            for (int i = 0; i < count; i++) {
+                long id = data.readLong();
+                String text = readText(data, rawLength);
+                LocalDateTime completedAt = fromMillis(data.readLong());
+                LocalDateTime dueDate = fromMillis(data.readLong());
+                records.add(new ArchivedTask(id, text, completedAt, dueDate));
+            }
+        }
+        return records;
+    }
+
+    // Index file
+    private void loadIndex() throws IOException {
+        if (!archiveFile.exists()) {
+            return;
+        }
+        long expectedOffset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            while (in.available() > 0) {
+                BlockIndex block = new BlockIndex(in.readLong(), in.readInt(), in.readInt(), readBloom(in));
+                if (block.offset != expectedOffset || block.count < 0 || block.count > BLOCK_SIZE) {
+                    throw new IOException("index does not match archive");
+                }
+                long[] ids = new long[block.count];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.readLong();
+                }
+                addBlock(block, ids);
+                expectedOffset = block.offset + 16 + block.length;
+            }
+        }
+        if (expectedOffset != archiveFile.length()) {
+            throw new IOException("index does not cover the whole archive");
+        }
+    }
+
+    // Only a block cut short by the end of the file (a crash mid-append) is truncated away.
+    // A damaged block further in is left in place and indexed as empty, so later blocks stay
+    // searchable; if its header is unreadable the scan stops there without changing the file.
+    private void rebuildIndex() {
+        blocks.clear();
+        archivedIds = new RoaringBitmap();
+        totalCount = 0;
+        maxId = 0;
+        List<long[]> blockIds = new ArrayList<>();
+        long validLength = 0;
+        boolean torn = false;
+
+        try (RandomAccessFile in = new RandomAccessFile(archiveFile, "r")) {
+            long fileLength = in.length();
+            while (validLength < fileLength) {
+                if (validLength + 16 > fileLength) {
+                    torn = true;
+                    break;
+                }
+                in.seek(validLength);
+                int magic = in.readInt();
+                in.seek(validLength + 12);
+                int length = in.readInt();
+                if (magic != BLOCK_MAGIC || length < 0) {
+                    System.err.println("Unreadable archive block at offset " + validLength
+                            + "; later archived tasks cannot be searched");
+                    break;
+                }
+                if (validLength + 16 + length > fileLength) {
+                    torn = true;
+                    break;
+                }
+
+                BlockIndex block;
+                long[] ids;
+                try {
+                    List<ArchivedTask> records = readBlock(in, new BlockIndex(validLength, length, 0, null));
+                    long[] bloom = new long[BLOOM_WORDS];
+                    ids = new long[records.size()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = records.get(i).id;
+                        for (String word : tokenize(records.get(i).text)) {
+                            addToBloom(bloom, word);
+                        }
+                    }
+                    block = new BlockIndex(validLength, length, records.size(), bloom);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Skipping corrupt archive block at offset " + validLength + ": " + e.getMessage());
+                    block = new BlockIndex(validLength, length, 0, new long[BLOOM_WORDS]);
+                    ids = new long[0];
+                }
+                addBlock(block, ids);
+                blockIds.add(ids);
+                validLength += 16 + length;
+            }
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            System.err.println("Error reading archive: " + e.getMessage());
+        }
+
+        try {
+            if (torn) {
+                System.err.println("Archive truncated after " + blocks.size() + " blocks: last block is incomplete");
+                truncate(archiveFile, validLength);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+                for (int b = 0; b < blocks.size(); b++) {
+                    writeIndexEntry(out, blocks.get(b), blockIds.get(b));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing archive index: " + e.getMessage());
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        if (file.length() > length) {
+            try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+                out.setLength(length);
+            }
+        }
+    }
+
+    private static String readText(DataInputStream data, int rawLength) throws IOException {
+        int length = data.readInt();
+        if (length < 0 || length > rawLength) {
+            throw new IOException("Corrupt archive record");
+        }
+        byte[] text = new byte[length];
+        data.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static void writeIndexEntry(DataOutputStream out, BlockIndex block, long[] ids) throws IOException {
+        out.writeLong(block.offset);
+        out.writeInt(block.length);
+        out.writeInt(block.count);
+        for (long word : block.bloom) {
+            out.writeLong(word);
+        }
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static long[] readBloom(DataInputStream in) throws IOException {
+        long[] bloom = new long[BLOOM_WORDS];
+        for (int i = 0; i < BLOOM_WORDS; i++) {
+            bloom[i] = in.readLong();
+        }
+        return bloom;
+    }
+
+    // Bloom filter over lower-cased words, three probes per word
+    private static void addToBloom(long[] bloom, String word) {
+        int h1 = word.hashCode();
+        int h2 = (h1 >>> 16) | 1;
+        for (int i = 0; i < 3; i++) {
+            int bit = ((h1 + i * h2) & 0x7fffffff) % (BLOOM_WORDS * 64);
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean mightContainAll(long[] bloom, List<String> words) {
+        for (String word : words) {
+            int h1 = word.hashCode();
+            int h2 = (h1 >>> 16) | 1;
+            for (int i = 0; i < 3; i++) {
+                int bit = ((h1 + i * h2) & 0x7fffffff) % (BLOOM_WORDS * 64);
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // Compression
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Archive block is truncated");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Archive block is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? NO_DATE : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return millis == NO_DATE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,271 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parent/child view of the task list, kept in step with the store on the EDT.
+ *
+ * Every node caches how many tasks its subtree holds and how many of them are done (itself
+ * included). A change only walks the path from the task to the root, so keeping the counts
+ * current costs O(depth) per change; the virtual root holds the totals for the whole list.
+ * A task's parent is fixed when it is created; tasks whose parent no longer exists are shown
+ * at the top level.
+ */
+final class TaskHierarchy {
+
+    static final class Node {
+        ToDoListPureSwing.Task task;
+        Node parent;
+        final List<Node> children = new ArrayList<>();
+        int doneCount;
+        int totalCount;
+
+        Node(ToDoListPureSwing.Task task) {
+            this.task = task;
+        }
+
+        boolean hasChildren() {
+            return !children.isEmpty();
+        }
+
+        /** Completed and total counts of the descendants, without the task itself. */
+        int subtasksDone() {
+            return doneCount - (task.isDone() ? 1 : 0);
+        }
+
+        int subtaskCount() {
+            return totalCount - 1;
+        }
+    }
+
+    interface RowVisitor {
+        void visit(Node node, int depth, int number);
+    }
+
+    private final Node root = new Node(null);
+    private final Map<Long, Node> nodes = new HashMap<>();
+
+    int doneCount() {
+        return root.doneCount;
+    }
+
+    int totalCount() {
+        return root.totalCount;
+    }
+
+    Node get(long id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Applies a store change. Returns true if the set of visible rows may have changed (tasks
+     * added or removed, a group expanded or collapsed), false if only row contents changed.
+     */
+    boolean apply(PersistentTaskList after, Set<Long> changedIds) {
+        if (changedIds == null) {
+            rebuild(after);
+            return true;
+        }
+
+        // Ascending ids, so a parent created in the same batch is in place before its children
+        List<Long> ids = new ArrayList<>(changedIds);
+        Collections.sort(ids);
+
+        boolean structural = false;
+        for (long id : ids) {
+            Node node = nodes.get(id);
+            ToDoListPureSwing.Task task = after.get(id);
+            if (node == null) {
+                if (task != null) {
+                    insert(task);
+                    structural = true;
+                }
+            } else if (task == null) {
+                delete(node);
+                structural = true;
+            } else {
+                ToDoListPureSwing.Task old = node.task;
+                node.task = task;
+                if (old.isDone() != task.isDone()) {
+                    adjust(node, task.isDone() ? 1 : -1, 0);
+                }
+                structural |= old.isCollapsed() != task.isCollapsed() && node.hasChildren();
+            }
+        }
+        return structural;
+    }
+
+    void rebuild(PersistentTaskList tasks) {
+        nodes.clear();
+        root.children.clear();
+        for (ToDoListPureSwing.Task task : tasks) {
+            nodes.put(task.getId(), new Node(task));
+        }
+        // Id order: children are appended already sorted
+        for (ToDoListPureSwing.Task task : tasks) {
+            Node node = nodes.get(task.getId());
+            node.parent = parentOf(task);
+            node.parent.children.add(node);
+        }
+        computeCounts(root);
+    }
+
+    /** Depth-first over the rows that are on screen: children of collapsed tasks are skipped. */
+    void forEachVisible(RowVisitor visitor) {
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        Deque<Integer> numbers = new ArrayDeque<>();
+        pushChildren(root, 0, stack, depths, numbers);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int depth = depths.pop();
+            visitor.visit(node, depth, numbers.pop());
+            if (!node.task.isCollapsed()) {
+                pushChildren(node, depth + 1, stack, depths, numbers);
+            }
+        }
+    }
+
+    /** The task and all of its descendants' ids, the task itself first. */
+    List<Long> subtreeIds(long id) {
+        List<Long> ids = new ArrayList<>();
+        Node start = nodes.get(id);
+        if (start == null) {
+            return ids;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            ids.add(node.task.getId());
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+        return ids;
+    }
+
+    /** Ids of the ancestors of a task, nearest first. */
+    List<Long> ancestorIds(long id) {
+        List<Long> ids = new ArrayList<>();
+        Node node = nodes.get(id);
+        for (node = node == null ? null : node.parent; node != null && node != root; node = node.parent) {
+            ids.add(node.task.getId());
+        }
+        return ids;
+    }
+
+    int depth(Node node) {
+        int depth = 0;
+        for (Node n = node.parent; n != root; n = n.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /** One-based position of the task among its siblings. */
+    int number(Node node) {
+        return indexIn(node.parent.children, node.task.getId()) + 1;
+    }
+
+    private void insert(ToDoListPureSwing.Task task) {
+        Node node = new Node(task);
+        node.parent = parentOf(task);
+        List<Node> siblings = node.parent.children;
+        siblings.add(-indexIn(siblings, task.getId()) - 1, node);
+        nodes.put(task.getId(), node);
+
+        node.totalCount = 1;
+        node.doneCount = task.isDone() ? 1 : 0;
+        adjustAncestors(node, node.doneCount, 1);
+    }
+
+    // Parents are always created first, so a parent id not below the task's own id is ignored;
+    // this also rules out cycles
+    private Node parentOf(ToDoListPureSwing.Task task) {
+        Node parent = task.getParentId() < task.getId() ? nodes.get(task.getParentId()) : null;
+        return parent == null ? root : parent;
+    }
+
+    // Removes one task; any children it still has move to the top level
+    private void delete(Node node) {
+        nodes.remove(node.task.getId());
+        List<Node> siblings = node.parent.children;
+        siblings.remove(indexIn(siblings, node.task.getId()));
+        adjustAncestors(node, -node.doneCount, -node.totalCount);
+
+        for (Node child : node.children) {
+            child.parent = root;
+            root.children.add(-indexIn(root.children, child.task.getId()) - 1, child);
+            root.doneCount += child.doneCount;
+            root.totalCount += child.totalCount;
+        }
+    }
+
+    private void adjust(Node node, int doneDelta, int totalDelta) {
+        node.doneCount += doneDelta;
+        node.totalCount += totalDelta;
+        adjustAncestors(node, doneDelta, totalDelta);
+    }
+
+    private void adjustAncestors(Node node, int doneDelta, int totalDelta) {
+        for (Node n = node.parent; n != null; n = n.parent) {
+            n.doneCount += doneDelta;
+            n.totalCount += totalDelta;
+        }
+    }
+
+    private static void pushChildren(Node node, int depth, Deque<Node> stack, Deque<Integer> depths, Deque<Integer> numbers) {
+        for (int i = node.children.size() - 1; i >= 0; i--) {
+            stack.push(node.children.get(i));
+            depths.push(depth);
+            numbers.push(i + 1);
+        }
+    }
+
+    // Post-order without recursion, so deep chains cannot overflow the stack
+    private static void computeCounts(Node root) {
+        List<Node> order = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            order.add(node);
+            for (Node child : node.children) {
+                stack.push(child);
+            }
+        }
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            node.totalCount = node.task == null ? 0 : 1;
+            node.doneCount = node.task != null && node.task.isDone() ? 1 : 0;
+            for (Node child : node.children) {
+                node.totalCount += child.totalCount;
+                node.doneCount += child.doneCount;
+            }
+        }
+    }
+
+    // Binary search by id; returns -(insertion point) - 1 when absent
+    private static int indexIn(List<Node> siblings, long id) {
+        int low = 0;
+        int high = siblings.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = siblings.get(mid).task.getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,211 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe home of the task list.
+ *
+ * Reads are lock-free: {@link #snapshot()} returns the current immutable version. Any thread may
+ * submit changes; they go into a lock-free queue and one writer thread applies them in batches,
+ * publishing a single new version per batch. Listeners are told about changes on the EDT, and
+ * bursts of batches collapse into one notification carrying every id touched since the last one.
+ */
+final class TaskStore {
+
+    /** Notified on the EDT; {@code changedIds} is null when the whole list was replaced. */
+    interface Listener {
+        void tasksChanged(PersistentTaskList before, PersistentTaskList after, Set<Long> changedIds);
+    }
+
+    private static final int MAX_BATCH = 4096;
+
+    // One queued change; apply returns the new version and records the ids it touched
+    private interface Op {
+        PersistentTaskList apply(PersistentTaskList tasks, Set<Long> changedIds);
+    }
+
+    private final ConcurrentLinkedQueue<Op> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writerParked = new AtomicBoolean();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread writer;
+
+    private volatile PersistentTaskList current = PersistentTaskList.EMPTY;
+
+    // Guarded by changeLock: what the EDT has not been told about yet
+    private final Object changeLock = new Object();
+    private Set<Long> pendingIds = new HashSet<>();
+    private boolean pendingReset;
+    private boolean notifyScheduled;
+
+    // EDT only: the version listeners saw last
+    private PersistentTaskList notified = PersistentTaskList.EMPTY;
+
+    TaskStore() {
+        writer = new Thread(this::runWriter, "task-store-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    PersistentTaskList snapshot() {
+        return current;
+    }
+
+    long newId() {
+        return nextId.getAndIncrement();
+    }
+
+    /** Makes sure {@link #newId()} never hands out {@code usedId} or anything below it. */
+    void reserveIds(long usedId) {
+        nextId.accumulateAndGet(usedId + 1, Math::max);
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Adds the task, or replaces the task with the same id. */
+    void put(ToDoListPureSwing.Task task) {
+        submit((tasks, changed) -> {
+            changed.add(task.getId());
+            return tasks.with(task);
+        });
+    }
+
+    void remove(long id) {
+        submit((tasks, changed) -> {
+            PersistentTaskList next = tasks.without(id);
+            if (next != tasks) {
+                changed.add(id);
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Applies {@code change} to whatever version of the task is current when the writer gets to
+     * it. Returning null removes the task; nothing happens if the task is gone by then.
+     */
+    void update(long id, UnaryOperator<ToDoListPureSwing.Task> change) {
+        submit((tasks, changed) -> {
+            ToDoListPureSwing.Task task = tasks.get(id);
+            if (task == null) {
+                return tasks;
+            }
+            ToDoListPureSwing.Task updated = change.apply(task);
+            if (updated == task) {
+                return tasks;
+            }
+            changed.add(id);
+            return updated == null ? tasks.without(id) : tasks.with(updated);
+        });
+    }
+
+    /** Replaces the whole list, e.g. after loading from disk, and waits until it is visible. */
+    void reset(PersistentTaskList tasks) {
+        submit((ignored, changed) -> {
+            nextId.accumulateAndGet(tasks.maxId() + 1, Math::max);
+            synchronized (changeLock) {
+                pendingReset = true;
+            }
+            return tasks;
+        });
+        flush().join();
+    }
+
+    /** Completes once every change submitted before this call has been published. */
+    CompletableFuture<PersistentTaskList> flush() {
+        Barrier barrier = new Barrier();
+        submit(barrier);
+        return barrier.done;
+    }
+
+    private void submit(Op op) {
+        queue.offer(op);
+        if (writerParked.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void runWriter() {
+        Set<Long> changed = new HashSet<>();
+        List<Barrier> barriers = new ArrayList<>();
+        while (true) {
+            Op op = queue.poll();
+            if (op == null) {
+                writerParked.set(true);
+                if (queue.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                writerParked.set(false);
+                continue;
+            }
+
+            PersistentTaskList tasks = current;
+            for (int n = 0; op != null; op = ++n < MAX_BATCH ? queue.poll() : null) {
+                if (op instanceof Barrier) {
+                    barriers.add((Barrier) op);
+                    continue;
+                }
+                try {
+                    tasks = op.apply(tasks, changed);
+                } catch (RuntimeException e) {
+                    System.err.println("Error applying task change: " + e);
+                }
+            }
+            publish(tasks, changed);
+
+            for (Barrier barrier : barriers) {
+                barrier.done.complete(tasks);
+            }
+            changed.clear();
+            barriers.clear();
+        }
+    }
+
+    private void publish(PersistentTaskList tasks, Set<Long> changed) {
+        synchronized (changeLock) {
+            current = tasks;
+            pendingIds.addAll(changed);
+            if (!notifyScheduled && (pendingReset || !pendingIds.isEmpty())) {
+                notifyScheduled = true;
+                SwingUtilities.invokeLater(this::deliver);
+            }
+        }
+    }
+
+    private void deliver() {
+        PersistentTaskList after;
+        Set<Long> ids;
+        synchronized (changeLock) {
+            after = current;
+            ids = pendingReset ? null : pendingIds;
+            pendingIds = new HashSet<>();
+            pendingReset = false;
+            notifyScheduled = false;
+        }
+        PersistentTaskList before = notified;
+        notified = after;
+        for (Listener listener : listeners) {
+            listener.tasksChanged(before, after, ids);
+        }
+    }
+
+    private static final class Barrier implements Op {
+        final CompletableFuture<PersistentTaskList> done = new CompletableFuture<>();
+
+        @Override
+        public PersistentTaskList apply(PersistentTaskList tasks, Set<Long> changedIds) {
+            return tasks;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Throughput and consistency check for {@link TaskStore} under concurrent producers.
+ *
+ * For each thread count, the producers add tasks at the same time and then mark every
+ * fourth of their own tasks done through {@link TaskStore#update}. The driver then checks that
+ * the final list has exactly the expected size and done count and that the last notification
+ * delivered on the EDT saw that final version. It also prints how many notifications the
+ * coalescing produced. Needs no display.
+ *
+ * Properties: {@code todo.bench.threads} (comma-separated, default {@code 1,2,4,8}) and
+ * {@code todo.bench.tasksPerThread} (default 200000). Exits with status 1 if a check fails.
+ */
+final class TaskStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tasksPerThread = Integer.getInteger("todo.bench.tasksPerThread", 200_000);
+        boolean passed = true;
+        System.out.printf(Locale.ROOT, "%-8s %10s %12s %14s %7s%n", "threads", "ops", "ms", "ops/s", "notify");
+        for (String threads : System.getProperty("todo.bench.threads", "1,2,4,8").split(",")) {
+            passed &= run(Integer.parseInt(threads.trim()), tasksPerThread);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean run(int threads, int tasksPerThread) throws Exception {
+        TaskStore store = new TaskStore();
+        int[] notifications = {0};
+        AtomicReference<PersistentTaskList> lastSeen = new AtomicReference<>();
+        store.addListener((before, after, changedIds) -> {
+            notifications[0]++;
+            lastSeen.set(after);
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread producer = new Thread(() -> {
+                long[] ids = new long[tasksPerThread];
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < tasksPerThread; i++) {
+                    ids[i] = store.newId();
+                    store.put(new ToDoListPureSwing.Task(ids[i], "Task " + ids[i]));
+                }
+                for (int i = 0; i < tasksPerThread; i += 4) {
+                    store.update(ids[i], task -> task.withDone(true));
+                }
+            }, "producer-" + t);
+            producer.start();
+            producers.add(producer);
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        PersistentTaskList result = store.flush().join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        SwingUtilities.invokeAndWait(() -> { }); // the final notification is queued before flush completes
+        int notified = notifications[0];
+
+        long ops = (long) threads * (tasksPerThread + (tasksPerThread + 3) / 4);
+        System.out.printf(Locale.ROOT, "%-8d %10d %12.1f %14.0f %7d%n", threads, ops,
+                elapsedNanos / 1e6, ops / (elapsedNanos / 1e9), notified);
+
+        long expectedSize = (long) threads * tasksPerThread;
+        long expectedDone = (long) threads * ((tasksPerThread + 3) / 4);
+        boolean ok = result.size() == expectedSize && result.doneCount() == expectedDone && lastSeen.get() == result;
+        if (!ok) {
+            System.out.printf(Locale.ROOT, "FAIL: size %d (expected %d), done %d (expected %d), last notification %s%n",
+                    result.size(), expectedSize, result.doneCount(), expectedDone,
+                    lastSeen.get() == result ? "current" : "stale");
+        }
+        return ok;
+    }
+}
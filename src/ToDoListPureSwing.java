@@ -1,17 +1,63 @@
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ToDoListPureSwing extends JFrame {
 
-    private final ArrayList<Task> tasks = new ArrayList<>();
-    private final String dataFile = "tasks.dat";
+    // All task changes go through the store; the UI follows its change notifications
+    private final TaskStore store = new TaskStore();
+    private final TaskHierarchy hierarchy = new TaskHierarchy(); // EDT only
+    private final TagIndex tagIndex = new TagIndex(); // EDT only
+    private final String dataFile;
+    private final String remindedFile; // when reminders were last shown, so missed ones are reported once
+    private final TaskArchive archive;
+    private final Map<Long, JPanel> taskCards = new HashMap<>();
+
+    // Saves run on one background thread; a queued snapshot is superseded by newer ones
+    private final ExecutorService persistence = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<PersistentTaskList> pendingSave = new AtomicReference<>();
+    private ReminderScheduler reminders;
+
+    private static final DateTimeFormatter DUE_INPUT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter DUE_LABEL_FORMAT = DateTimeFormatter.ofPattern("MMM d, HH:mm");
+
+    // Up to this many changed tasks are refreshed card by card instead of rebuilding the list
+    private static final int PARTIAL_REFRESH_LIMIT = 8;
+    private static final int SUBTASK_INDENT = 28;
+
+    // A filter shows matching tasks as a flat list, capped so a broad filter stays responsive
+    private static final int MAX_FILTER_ROWS = 1000;
+    private static final int FILTER_DELAY_MILLIS = 150;
+
+    // Completed tasks older than this move from the live list into the archive
+    private static final long ARCHIVE_AFTER_DAYS = Long.getLong("todo.archiveAfterDays", 7);
 
     // UI Components
     private JPanel taskListPanel;
@@ -27,10 +73,22 @@ public class ToDoListPureSwing extends JFrame {
     private JPanel inputPanel;
     private JPanel footerPanel;
     private JButton darkModeButton;
+    private JButton archiveButton;
+    private JTextField filterInput;
+    private JLabel filterStatusLabel;
+    private Timer filterTimer;
+    private DiagnosticsOverlay diagnosticsOverlay;
+
+    // Active filter; null when the full task tree is shown
+    private String filterQuery;
+    private RoaringBitmap filterResult;
 
     // Mode state
     private boolean darkMode = false;
 
+    // EDT only: a full list rebuild is queued, so further rebuilds and card refreshes are redundant
+    private boolean rebuildPending;
+
     // Colors - Light Mode
     private Color PRIMARY_COLOR = new Color(64, 115, 255);
     private Color PRIMARY_HOVER = new Color(48, 95, 240);
@@ -50,6 +108,7 @@ public class ToDoListPureSwing extends JFrame {
     private Color WARNING_COLOR = new Color(255, 180, 70);
     private Color ERROR_COLOR = new Color(255, 90, 90);
     private Color TEXT_FIELD_TEXT_COLOR = new Color(30, 30, 30); // Dark text for text field
+    private Color OVERDUE_COLOR = new Color(175, 70, 210);
 
     // Colors - Dark Mode
     private final Color PRIMARY_COLOR_DARK = new Color(100, 150, 255);
@@ -70,6 +129,7 @@ public class ToDoListPureSwing extends JFrame {
     private final Color WARNING_COLOR_DARK = new Color(255, 210, 100);
     private final Color ERROR_COLOR_DARK = new Color(255, 120, 120);
     private final Color TEXT_FIELD_TEXT_COLOR_DARK = new Color(220, 220, 220); // Light text for dark mode
+    private final Color OVERDUE_COLOR_DARK = new Color(210, 140, 255);
 
     // Fonts
     private final Font TITLE_FONT = new Font("Segoe UI", Font.BOLD, 28);
@@ -80,8 +140,20 @@ public class ToDoListPureSwing extends JFrame {
     private final Font PROGRESS_FONT = new Font("Segoe UI", Font.BOLD, 12);
 
     public ToDoListPureSwing() {
+        this("tasks.dat", "tasks.archive");
+    }
+
+    // Used directly by UiStressHarness to run against scratch files
+    ToDoListPureSwing(String dataFile, String archiveFile) {
+        this.dataFile = dataFile;
+        this.remindedFile = dataFile + ".reminded";
+        this.archive = new TaskArchive(archiveFile);
+        store.reserveIds(archive.maxId()); // an archived task's id is never reused
         loadTasks();
+        archiveCompletedTasks();
         initializeUI();
+        startReminders();
+        store.addListener(this::onTasksChanged);
     }
 
     private void initializeUI() {
@@ -98,7 +170,24 @@ public class ToDoListPureSwing extends JFrame {
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                saveTasks();
+                reminders.shutdown();
+                writeRemindedUntil(reminders.remindedUntil());
+                archiveCompletedTasks();
+                saveTasksNow();
+                PerfMonitor.dumpIfEnabled();
+            }
+        });
+
+        // Diagnostics overlay, toggled with Ctrl+Shift+D
+        diagnosticsOverlay = new DiagnosticsOverlay();
+        setGlassPane(diagnosticsOverlay);
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK),
+                "toggleDiagnostics");
+        getRootPane().getActionMap().put("toggleDiagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                diagnosticsOverlay.toggle();
             }
         });
 
@@ -150,6 +239,11 @@ public class ToDoListPureSwing extends JFrame {
         darkModeButton.setBackground(darkMode ? ACCENT_COLOR_DARK : ACCENT_COLOR);
         darkModeButton.setForeground(Color.WHITE);
 
+        archiveButton = createStyledButton(archiveButtonText(), e -> showArchiveDialog());
+        archiveButton.setPreferredSize(new Dimension(140, 35));
+        archiveButton.setToolTipText("Browse and search archived tasks");
+
+        topRow.add(archiveButton, BorderLayout.WEST);
         topRow.add(darkModeButton, BorderLayout.EAST);
         headerPanel.add(topRow);
 
@@ -195,6 +289,7 @@ public class ToDoListPureSwing extends JFrame {
             SUCCESS_COLOR = SUCCESS_COLOR_DARK;
             WARNING_COLOR = WARNING_COLOR_DARK;
             ERROR_COLOR = ERROR_COLOR_DARK;
+            OVERDUE_COLOR = OVERDUE_COLOR_DARK;
         } else {
             PRIMARY_COLOR = new Color(64, 115, 255);
             PRIMARY_HOVER = new Color(48, 95, 240);
@@ -213,6 +308,7 @@ public class ToDoListPureSwing extends JFrame {
             SUCCESS_COLOR = new Color(50, 200, 120);
             WARNING_COLOR = new Color(255, 180, 70);
             ERROR_COLOR = new Color(255, 90, 90);
+            OVERDUE_COLOR = new Color(175, 70, 210);
         }
 
         // Update background
@@ -323,9 +419,97 @@ public class ToDoListPureSwing extends JFrame {
         centerPanel.add(addTaskButton);
 
         inputPanel.add(centerPanel, BorderLayout.CENTER);
+        inputPanel.add(createFilterPanel(), BorderLayout.SOUTH);
         return inputPanel;
     }
 
+    private JPanel createFilterPanel() {
+        JLabel filterLabel = new JLabel("Filter:");
+        filterLabel.setFont(SUBTITLE_FONT);
+        filterLabel.setForeground(TEXT_SECONDARY);
+
+        filterInput = new JTextField();
+        filterInput.setFont(SUBTITLE_FONT);
+        filterInput.setForeground(darkMode ? TEXT_FIELD_TEXT_COLOR_DARK : TEXT_FIELD_TEXT_COLOR);
+        filterInput.setBackground(darkMode ? CARD_COLOR_DARK : Color.WHITE);
+        filterInput.setBorder(BorderFactory.createCompoundBorder(
+                new RoundBorder(10, BORDER_COLOR, 1),
+                new EmptyBorder(5, 10, 5, 10)
+        ));
+        filterInput.setPreferredSize(new Dimension(300, 30));
+        filterInput.setToolTipText("<html>Tags start with # or @, e.g. <b>#backend (@alice OR @bob) NOT done</b><br>"
+                + "Combine with AND / &amp; (or a space), OR / |, NOT / ! and parentheses; <b>done</b> and <b>undone</b> match by state</html>");
+
+        // Typing re-filters once the user pauses; Enter applies right away
+        filterTimer = new Timer(FILTER_DELAY_MILLIS, e -> applyFilter());
+        filterTimer.setRepeats(false);
+        filterInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+        });
+        filterInput.addActionListener(e -> {
+            filterTimer.stop();
+            applyFilter();
+        });
+
+        filterStatusLabel = new JLabel(" ");
+        filterStatusLabel.setFont(PROGRESS_FONT);
+        filterStatusLabel.setForeground(TEXT_SECONDARY);
+        filterStatusLabel.setPreferredSize(new Dimension(220, 30));
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        filterPanel.setOpaque(false);
+        filterPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
+        filterPanel.add(filterLabel);
+        filterPanel.add(filterInput);
+        filterPanel.add(filterStatusLabel);
+        return filterPanel;
+    }
+
+    // Evaluates the filter text against the tag index and redraws the list
+    private void applyFilter() {
+        String query = filterInput.getText().trim();
+        if (query.isEmpty()) {
+            filterQuery = null;
+            filterResult = null;
+            filterStatusLabel.setText(" ");
+            updateUI();
+            return;
+        }
+        filterQuery = query;
+        evaluateFilter();
+        updateUI();
+    }
+
+    // A query that does not parse keeps the previous result on screen
+    private void evaluateFilter() {
+        long start = System.nanoTime();
+        try {
+            filterResult = tagIndex.evaluate(filterQuery);
+        } catch (IllegalArgumentException e) {
+            filterStatusLabel.setForeground(ERROR_COLOR);
+            filterStatusLabel.setText(e.getMessage());
+            return;
+        }
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        int matches = filterResult.cardinality();
+        filterStatusLabel.setForeground(TEXT_SECONDARY);
+        filterStatusLabel.setText(String.format("%,d match%s (%.1f ms)%s", matches, matches == 1 ? "" : "es", millis,
+                matches > MAX_FILTER_ROWS ? ", first " + MAX_FILTER_ROWS + " shown" : ""));
+    }
+
     private JButton createStyledButton(String text, ActionListener action) {
         JButton button = new JButton(text) {
             private boolean hover = false;
@@ -379,7 +563,20 @@ public class ToDoListPureSwing extends JFrame {
         return button;
     }
 
-    private JPanel createTaskCard(Task task, int taskNumber) {
+    // Wraps a card so that subtasks are indented under their parent
+    private JPanel createTaskRow(TaskHierarchy.Node node, int depth, int taskNumber) {
+        JPanel row = new JPanel(new BorderLayout());
+        row.setOpaque(false);
+        row.setBorder(new EmptyBorder(0, depth * SUBTASK_INDENT, 0, 0));
+        row.setMaximumSize(new Dimension(700, 60));
+        row.setPreferredSize(new Dimension(700, 60));
+        row.setAlignmentX(Component.CENTER_ALIGNMENT);
+        row.add(createTaskCard(node, taskNumber), BorderLayout.CENTER);
+        return row;
+    }
+
+    private JPanel createTaskCard(TaskHierarchy.Node node, int taskNumber) {
+        Task task = node.task;
         JPanel card = new JPanel(new BorderLayout(12, 0));
         card.setMaximumSize(new Dimension(700, 60));
         card.setPreferredSize(new Dimension(700, 60));
@@ -395,7 +592,7 @@ public class ToDoListPureSwing extends JFrame {
         } else {
             card.setBackground(CARD_COLOR);
             card.setBorder(BorderFactory.createCompoundBorder(
-                    new RoundBorder(12, BORDER_COLOR, 1),
+                    new RoundBorder(12, task.isOverdue() ? OVERDUE_COLOR : BORDER_COLOR, 1),
                     new EmptyBorder(10, 18, 10, 18)
             ));
 
@@ -414,10 +611,10 @@ public class ToDoListPureSwing extends JFrame {
         }
 
         // Left panel with checkbox and task
-        JPanel leftPanel = createTaskLeftPanel(task, taskNumber);
+        JPanel leftPanel = createTaskLeftPanel(node, taskNumber);
 
         // Right panel with action buttons
-        JPanel buttonPanel = createTaskButtonPanel(task);
+        JPanel buttonPanel = createTaskButtonPanel(node);
 
         card.add(leftPanel, BorderLayout.WEST);
         card.add(buttonPanel, BorderLayout.EAST);
@@ -425,16 +622,37 @@ public class ToDoListPureSwing extends JFrame {
         return card;
     }
 
-    private JPanel createTaskLeftPanel(Task task, int taskNumber) {
+    private JPanel createTaskLeftPanel(TaskHierarchy.Node node, int taskNumber) {
+        Task task = node.task;
         JPanel leftPanel = new JPanel(new BorderLayout(8, 0));
         leftPanel.setOpaque(false);
 
-        // Task number
+        // Expand/collapse arrow for tasks with subtasks, then the task number
+        JLabel toggleLabel = new JLabel(node.hasChildren() ? (task.isCollapsed() ? "\u25B8" : "\u25BE") : "");
+        toggleLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        toggleLabel.setForeground(PRIMARY_COLOR);
+        toggleLabel.setPreferredSize(new Dimension(14, 20));
+        if (node.hasChildren()) {
+            toggleLabel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            toggleLabel.setToolTipText(task.isCollapsed() ? "Show subtasks" : "Hide subtasks");
+            toggleLabel.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    toggleCollapsed(task);
+                }
+            });
+        }
+
         JLabel numberLabel = new JLabel(String.valueOf(taskNumber) + ".");
         numberLabel.setFont(new Font("Segoe UI", Font.BOLD, 12));
         numberLabel.setForeground(COMPLETED_COLOR);
         numberLabel.setPreferredSize(new Dimension(25, 20));
 
+        JPanel numberPanel = new JPanel(new BorderLayout(2, 0));
+        numberPanel.setOpaque(false);
+        numberPanel.add(toggleLabel, BorderLayout.WEST);
+        numberPanel.add(numberLabel, BorderLayout.CENTER);
+
         // Improved checkbox
         JCheckBox checkBox = new ImprovedCheckBox(task.isDone());
         checkBox.addActionListener(e -> toggleTaskComplete(task));
@@ -446,17 +664,43 @@ public class ToDoListPureSwing extends JFrame {
         checkboxPanel.setOpaque(false);
         checkboxPanel.add(checkBox);
 
-        leftPanel.add(numberLabel, BorderLayout.WEST);
+        leftPanel.add(numberPanel, BorderLayout.WEST);
         leftPanel.add(checkboxPanel, BorderLayout.CENTER);
         leftPanel.add(taskLabel, BorderLayout.EAST);
 
         return leftPanel;
     }
 
-    private JPanel createTaskButtonPanel(Task task) {
+    private JPanel createTaskButtonPanel(TaskHierarchy.Node node) {
+        Task task = node.task;
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
         buttonPanel.setOpaque(false);
 
+        if (node.hasChildren()) {
+            JLabel subtaskLabel = new JLabel(node.subtasksDone() + "/" + node.subtaskCount());
+            subtaskLabel.setFont(PROGRESS_FONT);
+            subtaskLabel.setForeground(node.subtasksDone() == node.subtaskCount() ? SUCCESS_COLOR : TEXT_SECONDARY);
+            subtaskLabel.setToolTipText("Completed subtasks");
+            buttonPanel.add(subtaskLabel);
+        }
+
+        if (task.getDueDate() != null) {
+            JLabel dueLabel = new JLabel("Due " + task.getDueDate().format(DUE_LABEL_FORMAT));
+            dueLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+            dueLabel.setForeground(task.isDone() ? COMPLETED_COLOR : task.isOverdue() ? OVERDUE_COLOR : TEXT_SECONDARY);
+            buttonPanel.add(dueLabel);
+        }
+
+        JButton subtaskButton = createStyledButton("Sub", e -> addSubtask(task));
+        subtaskButton.setPreferredSize(new Dimension(55, 34));
+        subtaskButton.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        subtaskButton.setToolTipText("Add a subtask");
+
+        JButton dueButton = createStyledButton("Due", e -> editDueDate(task));
+        dueButton.setPreferredSize(new Dimension(60, 34));
+        dueButton.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        dueButton.setToolTipText("Set due date and reminder");
+
         JButton editButton = createStyledButton("Edit", e -> editTask(task));
         editButton.setPreferredSize(new Dimension(70, 34));
         editButton.setFont(new Font("Segoe UI", Font.BOLD, 13));
@@ -468,6 +712,8 @@ public class ToDoListPureSwing extends JFrame {
         deleteButton.setToolTipText("Delete task");
         deleteButton.setBackground(ERROR_COLOR);
 
+        buttonPanel.add(subtaskButton);
+        buttonPanel.add(dueButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
 
@@ -495,6 +741,9 @@ public class ToDoListPureSwing extends JFrame {
 
         if (task.isDone()) {
             taskLabel.setForeground(COMPLETED_COLOR);
+        } else if (task.isOverdue()) {
+            taskLabel.setForeground(OVERDUE_COLOR);
+            taskLabel.setFont(taskLabel.getFont().deriveFont(Font.BOLD));
         } else if (task.getText().toLowerCase().contains("urgent")) {
             taskLabel.setForeground(ERROR_COLOR);
             taskLabel.setFont(taskLabel.getFont().deriveFont(Font.BOLD));
@@ -559,37 +808,301 @@ public class ToDoListPureSwing extends JFrame {
         String text = taskInput.getText().trim();
         final String placeholder = "Enter a new task...";
         if (!text.isEmpty() && !text.equals(placeholder)) {
-            Task newTask = new Task(text);
-            tasks.add(newTask);
+            store.put(new Task(store.newId(), text));
             taskInput.setText(placeholder);
             taskInput.setForeground(Color.GRAY);
-            updateUI();
             taskInput.requestFocusInWindow();
         }
     }
 
+    private void addSubtask(Task parent) {
+        String text = (String) JOptionPane.showInputDialog(
+                this,
+                "New subtask of \"" + parent.getText() + "\":",
+                "Add Subtask",
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                null,
+                ""
+        );
+
+        if (text != null && !text.trim().isEmpty()) {
+            store.put(new Task(store.newId(), text.trim(), parent.getId()));
+            store.update(parent.getId(), t -> t.withCollapsed(false));
+        }
+    }
+
+    private void toggleCollapsed(Task task) {
+        store.update(task.getId(), t -> t.withCollapsed(!t.isCollapsed()));
+    }
+
     private void deleteTask(Task task) {
+        List<Long> subtree = hierarchy.subtreeIds(task.getId());
+        String subtasks = subtree.size() > 1 ? "\nIts " + (subtree.size() - 1) + " subtask(s) will be deleted too." : "";
         int confirm = JOptionPane.showConfirmDialog(
                 this,
-                "Are you sure you want to delete this task?\n\"" + task.getText() + "\"",
+                "Are you sure you want to delete this task?\n\"" + task.getText() + "\"" + subtasks,
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.QUESTION_MESSAGE
         );
 
         if (confirm == JOptionPane.YES_OPTION) {
-            tasks.remove(task);
-            updateUI();
-            saveTasks();
+            for (long id : subtree) {
+                store.remove(id);
+            }
         }
     }
 
     private void toggleTaskComplete(Task task) {
-        task.setDone(!task.isDone());
-        updateUI();
+        store.update(task.getId(), t -> t.withDone(!t.isDone()));
+    }
+
+    private void editDueDate(Task task) {
+        String current = task.getDueDate() == null ? "" : task.getDueDate().format(DUE_INPUT_FORMAT);
+        String input = (String) JOptionPane.showInputDialog(
+                this,
+                "Due date (yyyy-MM-dd HH:mm), leave empty to clear.\n"
+                        + "A reminder fires " + ReminderScheduler.REMINDER_LEAD_MINUTES + " minutes before.",
+                "Due Date",
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                null,
+                current
+        );
+
+        if (input == null) {
+            return;
+        }
+        LocalDateTime dueDate;
+        try {
+            dueDate = input.trim().isEmpty() ? null : LocalDateTime.parse(input.trim(), DUE_INPUT_FORMAT);
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Please enter the date as yyyy-MM-dd HH:mm, e.g. 2025-03-14 09:30",
+                    "Invalid Date",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        store.update(task.getId(), t -> t.withDueDate(dueDate));
+    }
+
+    // Moves completed tasks older than ARCHIVE_AFTER_DAYS into the archive
+    private void archiveCompletedTasks() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minusDays(ARCHIVE_AFTER_DAYS);
+        PersistentTaskList snapshot = store.snapshot();
+        Set<Long> parents = new HashSet<>();
+        for (Task task : snapshot) {
+            parents.add(task.getParentId());
+        }
+
+        List<Task> expired = new ArrayList<>();
+        for (Task task : snapshot) {
+            if (task.isDone() && !parents.contains(task.getId())) { // tasks with subtasks stay
+                if (task.getCompletedAt() == null) {
+                    // saved before completion times existed
+                    store.update(task.getId(), t -> t.getCompletedAt() == null ? t.withCompletedAt(now) : t);
+                } else if (task.getCompletedAt().isBefore(cutoff)) {
+                    expired.add(task);
+                }
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        try {
+            archive.append(expired);
+        } catch (IOException e) {
+            System.err.println("Error archiving tasks: " + e.getMessage());
+            return;
+        }
+        for (Task task : expired) {
+            store.update(task.getId(), t -> t.isDone() ? null : t); // unless reopened meanwhile
+        }
+    }
+
+    private String archiveButtonText() {
+        return "Archive (" + archive.size() + ")";
+    }
+
+    private void showArchiveDialog() {
+        JDialog dialog = new JDialog(this, "Archived Tasks", true);
+        DefaultListModel<TaskArchive.ArchivedTask> model = new DefaultListModel<>();
+        JList<TaskArchive.ArchivedTask> list = new JList<>(model);
+        list.setFont(TASK_FONT);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                TaskArchive.ArchivedTask task = (TaskArchive.ArchivedTask) value;
+                String text = task.completedAt == null ? task.text
+                        : task.text + "  -  completed " + task.completedAt.format(DUE_LABEL_FORMAT);
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+
+        JLabel statusLabel = new JLabel(" ");
+        statusLabel.setFont(SUBTITLE_FONT);
+        statusLabel.setBorder(new EmptyBorder(8, 0, 0, 0));
+
+        JTextField searchField = new JTextField();
+        searchField.setFont(TASK_FONT);
+        searchField.setToolTipText("Words to search for, empty for the most recent tasks");
+        searchField.addActionListener(e -> searchArchive(searchField.getText(), model, statusLabel));
+
+        JPanel content = new JPanel(new BorderLayout(0, 10));
+        content.setBorder(new EmptyBorder(15, 15, 15, 15));
+        content.add(searchField, BorderLayout.NORTH);
+        content.add(new JScrollPane(list), BorderLayout.CENTER);
+        content.add(statusLabel, BorderLayout.SOUTH);
+
+        dialog.setContentPane(content);
+        dialog.setSize(550, 450);
+        dialog.setLocationRelativeTo(this);
+        searchArchive("", model, statusLabel);
+        dialog.setVisible(true);
+    }
+
+    // Archive blocks are inflated off the EDT
+    private void searchArchive(String query, DefaultListModel<TaskArchive.ArchivedTask> model, JLabel statusLabel) {
+        final int limit = 500;
+        statusLabel.setText("Searching...");
+        new SwingWorker<List<TaskArchive.ArchivedTask>, Void>() {
+            @Override
+            protected List<TaskArchive.ArchivedTask> doInBackground() throws IOException {
+                return archive.search(query, limit);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<TaskArchive.ArchivedTask> results = get();
+                    model.clear();
+                    for (TaskArchive.ArchivedTask task : results) {
+                        model.addElement(task);
+                    }
+                    statusLabel.setText(results.size() + (results.size() == limit ? "+" : "")
+                            + " of " + archive.size() + " archived tasks");
+                } catch (Exception e) {
+                    statusLabel.setText("Error reading archive: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void startReminders() {
+        reminders = new ReminderScheduler(new ReminderScheduler.Listener() {
+            @Override
+            public void reminderDue(Task scheduled) {
+                Task task = store.snapshot().get(scheduled.getId());
+                if (task != null && !task.isDone() && task.getDueDate() != null) {
+                    showReminder("Reminder", "\"" + task.getText() + "\" is due at "
+                            + task.getDueDate().format(DUE_LABEL_FORMAT));
+                }
+                long remindedUntil = reminders.remindedUntil();
+                if (!persistence.isShutdown()) {
+                    persistence.execute(() -> writeRemindedUntil(remindedUntil));
+                }
+            }
+
+            @Override
+            public void taskOverdue(Task task) {
+                if (store.snapshot().get(task.getId()) != null) {
+                    refreshTaskCard(task.getId());
+                }
+            }
+
+            @Override
+            public void remindersMissed(List<Task> missed) {
+                StringBuilder message = new StringBuilder("You missed " + missed.size() + " reminder(s):");
+                for (int i = 0; i < Math.min(missed.size(), 5); i++) {
+                    message.append("\n- ").append(missed.get(i).getText());
+                }
+                if (missed.size() > 5) {
+                    message.append("\n...and ").append(missed.size() - 5).append(" more");
+                }
+                showReminder("Missed Reminders", message.toString());
+            }
+        }, readRemindedUntil());
+    }
+
+    private long readRemindedUntil() {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(Paths.get(remindedFile)), StandardCharsets.US_ASCII).trim());
+        } catch (NoSuchFileException e) {
+            return 0; // first run: every past reminder is reported
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading reminder state: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private void writeRemindedUntil(long remindedUntil) {
+        try {
+            Files.write(Paths.get(remindedFile), Long.toString(remindedUntil).getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            System.err.println("Error saving reminder state: " + e.getMessage());
+        }
+    }
+
+    // Called on the EDT after one or more batches of store changes were applied
+    private void onTasksChanged(PersistentTaskList before, PersistentTaskList after, Set<Long> changedIds) {
+        boolean structural = hierarchy.apply(after, changedIds);
+        tagIndex.apply(before, after, changedIds);
+        if (changedIds == null) {
+            reminders.scheduleAll(after);
+            long remindedUntil = reminders.remindedUntil();
+            persistence.execute(() -> writeRemindedUntil(remindedUntil));
+        } else {
+            for (long id : changedIds) {
+                Task old = before.get(id);
+                Task task = after.get(id);
+                if (task == null) {
+                    reminders.cancel(id);
+                } else if (old == null || old.isDone() != task.isDone()
+                        || !Objects.equals(old.getDueDate(), task.getDueDate())) {
+                    reminders.schedule(task); // text edits and collapsing leave the schedule alone
+                }
+            }
+        }
+
+        // Any change can move tasks in or out of a filter, so the filtered list is redrawn
+        if (filterQuery != null) {
+            evaluateFilter();
+            updateUI();
+            saveTasks();
+            return;
+        }
+
+        // A changed task's ancestors show its progress, so their cards are refreshed too
+        Set<Long> cards = new HashSet<>();
+        if (!structural) {
+            for (long id : changedIds) {
+                cards.add(id);
+                cards.addAll(hierarchy.ancestorIds(id));
+            }
+        }
+        if (structural || cards.size() > PARTIAL_REFRESH_LIMIT) {
+            updateUI();
+        } else {
+            for (long id : cards) {
+                refreshTaskCard(id);
+            }
+        }
         saveTasks();
     }
 
+    // Non-modal so that several reminders never block the list or each other
+    private void showReminder(String title, String message) {
+        Toolkit.getDefaultToolkit().beep();
+        JOptionPane pane = new JOptionPane(message, JOptionPane.INFORMATION_MESSAGE);
+        JDialog dialog = pane.createDialog(this, title);
+        dialog.setModal(false);
+        dialog.setVisible(true);
+    }
+
     private void editTask(Task task) {
         String newText = (String) JOptionPane.showInputDialog(
                 this,
@@ -602,49 +1115,118 @@ public class ToDoListPureSwing extends JFrame {
         );
 
         if (newText != null && !newText.trim().isEmpty()) {
-            task.setText(newText.trim());
-            updateUI();
-            saveTasks();
+            String text = newText.trim();
+            store.update(task.getId(), t -> t.withText(text));
         }
     }
 
     private void updateUI() {
+        if (rebuildPending) {
+            return;
+        }
+        rebuildPending = true;
         SwingUtilities.invokeLater(() -> {
+            rebuildPending = false;
             if (taskListPanel != null) {
+                PerfMonitor.Sample sample = PerfMonitor.begin(PerfMonitor.Metric.LIST_REFRESH);
                 taskListPanel.removeAll();
+                taskCards.clear();
 
-                if (tasks.isEmpty()) {
-                    JPanel emptyPanel = createEmptyStatePanel();
-                    taskListPanel.add(emptyPanel);
+                if (hierarchy.totalCount() == 0) {
+                    taskListPanel.add(createEmptyStatePanel("No tasks yet!", "Add your first task above to get started"));
+                } else if (filterResult != null) {
+                    addFilteredRows();
                 } else {
-                    for (int i = 0; i < tasks.size(); i++) {
-                        if (i > 0) {
+                    // Only visible rows are built; collapsed subtrees are skipped entirely
+                    hierarchy.forEachVisible((node, depth, taskNumber) -> {
+                        if (!taskCards.isEmpty()) {
                             taskListPanel.add(Box.createRigidArea(new Dimension(0, 10)));
                         }
-                        taskListPanel.add(createTaskCard(tasks.get(i), i + 1));
-                    }
+                        JPanel row = createTaskRow(node, depth, taskNumber);
+                        taskCards.put(node.task.getId(), row);
+                        taskListPanel.add(row);
+                    });
                     taskListPanel.add(Box.createVerticalGlue());
                 }
 
                 updateProgressBar();
                 taskListPanel.revalidate();
                 taskListPanel.repaint();
+                if (sample != null) {
+                    PerfMonitor.end(sample, taskCards.size() + " rows");
+                }
             }
         });
     }
 
-    private JPanel createEmptyStatePanel() {
+    // Matching tasks in id order without nesting, numbered by their position in the result
+    private void addFilteredRows() {
+        if (filterResult.isEmpty()) {
+            taskListPanel.add(createEmptyStatePanel("No matching tasks", "Change or clear the filter to see more"));
+            return;
+        }
+        int[] number = {0};
+        filterResult.forEach(id -> {
+            TaskHierarchy.Node node = hierarchy.get(id);
+            if (node == null) {
+                return;
+            }
+            if (!taskCards.isEmpty()) {
+                taskListPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+            }
+            JPanel row = createTaskRow(node, 0, ++number[0]);
+            taskCards.put(node.task.getId(), row);
+            taskListPanel.add(row);
+        }, MAX_FILTER_ROWS);
+        taskListPanel.add(Box.createVerticalGlue());
+    }
+
+    // Rebuilds only the card of a task whose state changed, instead of the whole list
+    private void refreshTaskCard(long taskId) {
+        if (filterResult != null) {
+            updateUI(); // filtered rows are numbered by position, not by the hierarchy
+            return;
+        }
+        if (rebuildPending) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (rebuildPending) {
+                return;
+            }
+            TaskHierarchy.Node node = hierarchy.get(taskId);
+            JPanel oldRow = taskCards.get(taskId);
+            if (node == null || oldRow == null || oldRow.getParent() != taskListPanel) {
+                updateProgressBar(); // hidden under a collapsed parent, or already gone
+                return;
+            }
+
+            PerfMonitor.Sample sample = PerfMonitor.begin(PerfMonitor.Metric.LIST_PARTIAL_REFRESH);
+            int index = taskListPanel.getComponentZOrder(oldRow);
+            JPanel newRow = createTaskRow(node, hierarchy.depth(node), hierarchy.number(node));
+            taskListPanel.remove(index);
+            taskListPanel.add(newRow, index);
+            taskCards.put(taskId, newRow);
+
+            updateProgressBar();
+            taskListPanel.revalidate();
+            taskListPanel.repaint();
+            PerfMonitor.end(sample);
+        });
+    }
+
+    private JPanel createEmptyStatePanel(String title, String subtitle) {
         JPanel emptyPanel = new JPanel();
         emptyPanel.setLayout(new BoxLayout(emptyPanel, BoxLayout.Y_AXIS));
         emptyPanel.setOpaque(false);
         emptyPanel.setBorder(new EmptyBorder(50, 20, 50, 20));
 
-        JLabel emptyLabel = new JLabel("No tasks yet!", SwingConstants.CENTER);
+        JLabel emptyLabel = new JLabel(title, SwingConstants.CENTER);
         emptyLabel.setFont(new Font("Segoe UI", Font.BOLD, 18));
         emptyLabel.setForeground(COMPLETED_COLOR);
         emptyLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JLabel emptySubLabel = new JLabel("Add your first task above to get started", SwingConstants.CENTER);
+        JLabel emptySubLabel = new JLabel(subtitle, SwingConstants.CENTER);
         emptySubLabel.setFont(SUBTITLE_FONT);
         emptySubLabel.setForeground(COMPLETED_COLOR);
         emptySubLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -657,9 +1239,10 @@ public class ToDoListPureSwing extends JFrame {
         return emptyPanel;
     }
 
+    // Reads the totals kept at the root of the task hierarchy
     private void updateProgressBar() {
-        long completedTasks = tasks.stream().filter(Task::isDone).count();
-        long totalTasks = tasks.size();
+        long completedTasks = hierarchy.doneCount();
+        long totalTasks = hierarchy.totalCount();
 
         if (totalTasks > 0) {
             int percentage = (int) (100 * completedTasks / totalTasks);
@@ -685,10 +1268,21 @@ public class ToDoListPureSwing extends JFrame {
 
     @SuppressWarnings("unchecked")
     private void loadTasks() {
+        PerfMonitor.Sample sample = PerfMonitor.begin(PerfMonitor.Metric.TASKS_LOAD);
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(dataFile))) {
             ArrayList<Task> loadedTasks = (ArrayList<Task>) ois.readObject();
-            tasks.clear();
-            tasks.addAll(loadedTasks);
+
+            // Files written before tasks had ids get fresh ones in list order
+            boolean ordered = true;
+            for (int i = 1; i < loadedTasks.size() && ordered; i++) {
+                ordered = loadedTasks.get(i - 1).getId() < loadedTasks.get(i).getId();
+            }
+            if (!loadedTasks.isEmpty() && (!ordered || loadedTasks.get(0).getId() <= 0)) {
+                for (int i = 0; i < loadedTasks.size(); i++) {
+                    loadedTasks.set(i, loadedTasks.get(i).withId(store.newId()));
+                }
+            }
+            store.reset(PersistentTaskList.of(loadedTasks));
         } catch (FileNotFoundException e) {
             System.out.println("No existing task file found - starting fresh");
         } catch (IOException | ClassNotFoundException e) {
@@ -697,27 +1291,79 @@ public class ToDoListPureSwing extends JFrame {
                     "Error loading saved tasks. Starting with empty list.",
                     "Load Error",
                     JOptionPane.WARNING_MESSAGE);
+        } finally {
+            if (sample != null) {
+                PerfMonitor.end(sample, store.snapshot().size() + " tasks");
+            }
         }
     }
 
+    // Hands the current snapshot to the persistence thread; the EDT never waits for the disk
     private void saveTasks() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(dataFile))) {
-            oos.writeObject(tasks);
+        if (pendingSave.getAndSet(store.snapshot()) == null) {
+            persistence.execute(() -> {
+                PersistentTaskList snapshot = pendingSave.getAndSet(null);
+                try {
+                    writeTasks(snapshot);
+                } catch (IOException e) {
+                    SwingUtilities.invokeLater(() -> showSaveError(e));
+                }
+            });
+        }
+    }
+
+    // Used on exit: waits for queued saves, then writes the final version synchronously
+    private void saveTasksNow() {
+        store.flush().join();
+        persistence.shutdown();
+        try {
+            // A write still running would race this one on the temp file
+            if (!persistence.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Error saving tasks: background save still running, final save skipped");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            writeTasks(store.snapshot());
         } catch (IOException e) {
-            System.err.println("Error saving tasks: " + e.getMessage());
-            JOptionPane.showMessageDialog(this,
-                    "Error saving tasks: " + e.getMessage(),
-                    "Save Error",
-                    JOptionPane.ERROR_MESSAGE);
+            showSaveError(e);
+        }
+    }
+
+    private void writeTasks(PersistentTaskList snapshot) throws IOException {
+        PerfMonitor.Sample sample = PerfMonitor.begin(PerfMonitor.Metric.TASKS_SAVE);
+        File tempFile = new File(dataFile + ".tmp");
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                oos.writeObject(snapshot.toList());
+            }
+            Files.move(tempFile.toPath(), Paths.get(dataFile),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (sample != null) {
+                PerfMonitor.end(sample, snapshot.size() + " tasks");
+            }
         }
     }
 
+    private void showSaveError(IOException e) {
+        System.err.println("Error saving tasks: " + e.getMessage());
+        JOptionPane.showMessageDialog(this,
+                "Error saving tasks: " + e.getMessage(),
+                "Save Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
     public static void main(String[] args) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
             e.printStackTrace();
         }
+        PerfMonitor.install();
 
         SwingUtilities.invokeLater(() -> {
             ToDoListPureSwing app = new ToDoListPureSwing();
@@ -725,6 +1371,32 @@ public class ToDoListPureSwing extends JFrame {
         });
     }
 
+    // Hooks for UiStressHarness, which drives the real components; EDT only
+
+    TaskStore store() {
+        return store;
+    }
+
+    JPanel taskRow(long id) {
+        return taskCards.get(id);
+    }
+
+    JTextField taskInput() {
+        return taskInput;
+    }
+
+    JButton addTaskButton() {
+        return addTaskButton;
+    }
+
+    JButton darkModeButton() {
+        return darkModeButton;
+    }
+
+    JScrollPane taskScrollPane() {
+        return scrollPane;
+    }
+
     // Custom Components
     private static class RoundBorder extends AbstractBorder {
         private final int radius;
@@ -795,30 +1467,153 @@ public class ToDoListPureSwing extends JFrame {
         }
     }
 
-    static class Task implements Serializable {
+    // Translucent glass pane listing the latency histograms collected by PerfMonitor
+    private class DiagnosticsOverlay extends JComponent {
+        private final Timer refreshTimer = new Timer(500, e -> repaint());
+
+        DiagnosticsOverlay() {
+            setOpaque(false);
+        }
+
+        void toggle() {
+            boolean show = !isVisible();
+            if (show) {
+                PerfMonitor.setEnabled(true);
+                refreshTimer.start();
+            } else {
+                refreshTimer.stop();
+                PerfMonitor.setEnabled(PerfMonitor.ENABLED_BY_PROPERTY);
+            }
+            setVisible(show);
+        }
+
+        @Override
+        public boolean contains(int x, int y) {
+            return false; // let mouse events fall through to the UI below
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            FontMetrics fm = g2.getFontMetrics();
+
+            PerfMonitor.Metric[] metrics = PerfMonitor.Metric.values();
+            String header = String.format("%-14s %7s %8s %8s %8s", "ms", "count", "p50", "p99", "max");
+            int lineHeight = fm.getHeight();
+            int width = fm.stringWidth(header) + 24;
+            int height = lineHeight * (metrics.length + 1) + 20;
+            int x = getWidth() - width - 12;
+            int y = 12;
+
+            g2.setColor(new Color(0, 0, 0, 190));
+            g2.fillRoundRect(x, y, width, height, 12, 12);
+            g2.setColor(ACCENT_COLOR);
+            g2.drawString(header, x + 12, y + 10 + fm.getAscent());
+
+            g2.setColor(Color.WHITE);
+            for (int i = 0; i < metrics.length; i++) {
+                PerfMonitor.LatencyHistogram.Snapshot s = PerfMonitor.histogram(metrics[i]).snapshot();
+                String row = String.format("%-14s %7d %8.2f %8.2f %8.2f",
+                        metrics[i].label, s.count, s.p50 / 1e6, s.p99 / 1e6, s.max / 1e6);
+                g2.drawString(row, x + 12, y + 10 + fm.getAscent() + lineHeight * (i + 1));
+            }
+            g2.dispose();
+        }
+    }
+
+    // Immutable: every change produces a new Task with the same id
+    static final class Task implements Serializable {
         private static final long serialVersionUID = 1L;
-        private String text;
-        private boolean done;
+        private final long id;
+        private final String text;
+        private final boolean done;
+        private final LocalDateTime dueDate;
+        private final LocalDateTime completedAt;
+        private final long parentId;
+        private final boolean collapsed;
+
+        public Task(long id, String text) {
+            this(id, text, 0);
+        }
+
+        public Task(long id, String text, long parentId) {
+            this(id, text, false, null, null, parentId, false);
+        }
 
-        public Task(String text) {
+        private Task(long id, String text, boolean done, LocalDateTime dueDate, LocalDateTime completedAt,
+                     long parentId, boolean collapsed) {
+            this.id = id;
             this.text = text;
-            this.done = false;
+            this.done = done;
+            this.dueDate = dueDate;
+            this.completedAt = completedAt;
+            this.parentId = parentId;
+            this.collapsed = collapsed;
         }
 
-        public String getText() {
-            return text;
+        public long getId() {
+            return id;
         }
 
-        public void setText(String text) {
-            this.text = text;
+        public String getText() {
+            return text;
         }
 
         public boolean isDone() {
             return done;
         }
 
-        public void setDone(boolean done) {
-            this.done = done;
+        public LocalDateTime getDueDate() {
+            return dueDate;
+        }
+
+        public LocalDateTime getCompletedAt() {
+            return completedAt;
+        }
+
+        /** Id of the parent task, or 0 for a top-level task. */
+        public long getParentId() {
+            return parentId;
+        }
+
+        public boolean isCollapsed() {
+            return collapsed;
+        }
+
+        public boolean isOverdue() {
+            return !done && dueDate != null && dueDate.isBefore(LocalDateTime.now());
+        }
+
+        public Task withId(long id) {
+            return new Task(id, text, done, dueDate, completedAt, parentId, collapsed);
+        }
+
+        public Task withText(String text) {
+            return new Task(id, text, done, dueDate, completedAt, parentId, collapsed);
+        }
+
+        public Task withDone(boolean done) {
+            if (done == this.done) {
+                return this;
+            }
+            return new Task(id, text, done, dueDate, done ? LocalDateTime.now() : null, parentId, collapsed);
+        }
+
+        public Task withDueDate(LocalDateTime dueDate) {
+            return new Task(id, text, done, dueDate, completedAt, parentId, collapsed);
+        }
+
+        public Task withCompletedAt(LocalDateTime completedAt) {
+            return new Task(id, text, done, dueDate, completedAt, parentId, collapsed);
+        }
+
+        public Task withCollapsed(boolean collapsed) {
+            if (collapsed == this.collapsed) {
+                return this;
+            }
+            return new Task(id, text, done, dueDate, completedAt, parentId, collapsed);
         }
 
         @Override
@@ -826,4 +1621,4 @@ public class ToDoListPureSwing extends JFrame {
             return text;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,442 @@
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Load generator and latency regression check for the real to-do list frame.
+ *
+ * Seeds a scratch task file, opens {@link ToDoListPureSwing} on a real display (run it under
+ * {@code xvfb-run} on a build machine) and replays scripted bursts of user actions through the
+ * actual components: the Add button, row checkboxes, the Edit and Delete buttons (answering
+ * their dialogs), the list scroll bar and the theme toggle. Every action is timed from the
+ * click until the store has applied it and the EDT is idle again, i.e. until the result is on
+ * screen. Frame times come from {@link PerfMonitor}; GC and heap figures from the JVM's MXBeans.
+ *
+ * Settings are system properties with the {@code todo.stress.} prefix (see {@link #main}).
+ * The process exits with status 1 if any budget is exceeded or a scripted action never recorded
+ * a sample, 2 without a display and 3 if the run itself fails.
+ */
+final class UiStressHarness {
+
+    enum Action { ADD, TOGGLE, EDIT, DELETE, SCROLL, THEME }
+
+    private static final String[] WORDS = {
+            "Review", "Write", "Fix", "Plan", "Call", "Update", "Test", "Ship", "Email", "Refactor"
+    };
+    private static final String[] TAGS = { "#backend", "#ui", "#docs", "@alice", "@bob", "urgent", "important" };
+
+    private static final long DIALOG_TIMEOUT_MILLIS = 10_000;
+
+    private final int taskCount = intProperty("tasks", 5_000);
+    private final int warmupBursts = intProperty("warmupBursts", 3);
+    private final int bursts = intProperty("bursts", 30);
+    private final int burstSize = intProperty("burstSize", 20);
+    private final long pauseMillis = intProperty("pauseMillis", 200);
+    private final Map<Action, Integer> script = parseScript(
+            System.getProperty("todo.stress.script", "add:25,toggle:30,edit:15,delete:10,scroll:15,theme:5"));
+
+    private final long budgetP99Millis = intProperty("budget.p99Millis", 250);
+    private final long budgetMaxMillis = intProperty("budget.maxMillis", 1_000);
+    private final long budgetFrameP99Millis = intProperty("budget.frameP99Millis", 50);
+    private final long budgetGcMillis = intProperty("budget.gcMillis", 2_000);
+    private final long budgetHeapMb = intProperty("budget.heapMb", 1_024);
+
+    private final Random random = new Random(intProperty("seed", 42));
+    private final Map<Action, PerfMonitor.LatencyHistogram> latencies = new EnumMap<>(Action.class);
+    private final PerfMonitor.LatencyHistogram allLatencies = new PerfMonitor.LatencyHistogram();
+    private final PerfMonitor.LatencyHistogram burstLatencies = new PerfMonitor.LatencyHistogram();
+
+    private ToDoListPureSwing app;
+    private Robot robot;
+
+    /**
+     * Properties: {@code tasks}, {@code warmupBursts}, {@code bursts}, {@code burstSize},
+     * {@code pauseMillis} (idle time between bursts), {@code seed}, {@code script} (action
+     * weights, e.g. {@code add:25,toggle:30,edit:15,delete:10,scroll:15,theme:5}) and the budgets
+     * {@code budget.p99Millis}, {@code budget.maxMillis}, {@code budget.frameP99Millis},
+     * {@code budget.gcMillis} (total GC time) and {@code budget.heapMb} (peak heap).
+     */
+    public static void main(String[] args) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("UiStressHarness needs a display; run it under xvfb-run on headless machines.");
+            System.exit(2);
+        }
+        boolean passed;
+        try {
+            passed = new UiStressHarness().run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(3); // AWT threads would otherwise keep the JVM alive
+            return;
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private UiStressHarness() {
+        for (Action action : Action.values()) {
+            latencies.put(action, new PerfMonitor.LatencyHistogram());
+        }
+    }
+
+    private boolean run() throws Exception {
+        UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        PerfMonitor.install();
+        PerfMonitor.setEnabled(true);
+        robot = new Robot();
+
+        Path dir = Files.createTempDirectory("todo-stress");
+        try {
+            String dataFile = dir.resolve("tasks.dat").toString();
+            String archiveFile = dir.resolve("tasks.archive").toString();
+            app = onEdt(() -> {
+                ToDoListPureSwing frame = new ToDoListPureSwing(dataFile, archiveFile);
+                frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                frame.setVisible(true);
+                return frame;
+            });
+            seed();
+
+            for (int i = 0; i < warmupBursts; i++) {
+                burst(false);
+            }
+            PerfMonitor.reset();
+            GcTotals gcBefore = GcTotals.now();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                pool.resetPeakUsage();
+            }
+
+            for (int i = 0; i < bursts; i++) {
+                burst(true);
+                Thread.sleep(pauseMillis);
+            }
+
+            GcTotals gc = GcTotals.now().minus(gcBefore);
+            return report(gc, peakHeapBytes());
+        } finally {
+            if (app != null) {
+                onEdt(() -> {
+                    app.dispose();
+                    return null;
+                });
+            }
+            deleteRecursively(dir);
+        }
+    }
+
+    private void seed() throws Exception {
+        TaskStore store = onEdt(app::store);
+        for (int i = 0; i < taskCount; i++) {
+            ToDoListPureSwing.Task task = new ToDoListPureSwing.Task(store.newId(), randomText());
+            store.put(random.nextInt(3) == 0 ? task.withDone(true) : task);
+        }
+        settle(store);
+        System.out.printf(Locale.ROOT, "Seeded %,d tasks%n", store.snapshot().size());
+    }
+
+    // Runs burstSize actions back to back, each one waited for until it is on screen
+    private void burst(boolean record) throws Exception {
+        long burstStart = System.nanoTime();
+        for (int i = 0; i < burstSize; i++) {
+            perform(nextAction(), record);
+        }
+        if (record) {
+            burstLatencies.record(System.nanoTime() - burstStart);
+        }
+    }
+
+    // Picks a target, then times the action from the click until its result is on screen; an
+    // action whose row or button is not on screen is skipped and not recorded
+    private void perform(Action action, boolean record) throws Exception {
+        TaskStore store = onEdt(app::store);
+        List<ToDoListPureSwing.Task> tasks = store.snapshot().toList();
+        if (tasks.isEmpty() && action != Action.SCROLL && action != Action.THEME) {
+            action = Action.ADD;
+        }
+        ToDoListPureSwing.Task target = tasks.isEmpty() ? null : tasks.get(random.nextInt(tasks.size()));
+
+        long start = System.nanoTime();
+        boolean performed = true;
+        switch (action) {
+            case ADD:
+                String text = randomText();
+                onEdt(() -> {
+                    app.taskInput().setText(text);
+                    app.addTaskButton().doClick();
+                    return null;
+                });
+                break;
+            case TOGGLE:
+                performed = onEdt(() -> {
+                    JCheckBox checkBox = find(app.taskRow(target.getId()), JCheckBox.class, null);
+                    if (checkBox != null) {
+                        checkBox.doClick();
+                    }
+                    return checkBox != null;
+                });
+                break;
+            case EDIT:
+                performed = clickAndAnswer(target, "Edit", pane -> {
+                    pane.setInputValue(randomText());
+                    pane.setValue(JOptionPane.OK_OPTION);
+                });
+                break;
+            case DELETE:
+                performed = clickAndAnswer(target, "Delete", pane -> pane.setValue(JOptionPane.YES_OPTION));
+                break;
+            case SCROLL:
+                int fraction = random.nextInt(1_000);
+                onEdt(() -> {
+                    JScrollBar bar = app.taskScrollPane().getVerticalScrollBar();
+                    int range = bar.getMaximum() - bar.getVisibleAmount() - bar.getMinimum();
+                    bar.setValue(bar.getMinimum() + (int) ((long) range * fraction / 1_000));
+                    return null;
+                });
+                break;
+            case THEME:
+                onEdt(() -> {
+                    app.darkModeButton().doClick();
+                    return null;
+                });
+                break;
+        }
+        settle(store);
+
+        if (record && performed) {
+            long elapsed = System.nanoTime() - start;
+            latencies.get(action).record(elapsed);
+            allLatencies.record(elapsed);
+        }
+    }
+
+    // Edit and Delete open modal dialogs, so the click is posted and the dialog answered once it
+    // shows. Returns false if the row has no such button.
+    private boolean clickAndAnswer(ToDoListPureSwing.Task target, String buttonText,
+                                   Consumer<JOptionPane> answer) throws Exception {
+        JButton button = onEdt(() -> find(app.taskRow(target.getId()), JButton.class, buttonText));
+        if (button == null) {
+            return false;
+        }
+        SwingUtilities.invokeLater(button::doClick);
+
+        long deadline = System.currentTimeMillis() + DIALOG_TIMEOUT_MILLIS;
+        while (true) {
+            // The EDT keeps pumping events while the modal dialog is open
+            boolean answered = onEdt(() -> {
+                for (Window window : app.getOwnedWindows()) {
+                    JOptionPane pane = window instanceof JDialog && window.isShowing()
+                            ? find(((JDialog) window).getContentPane(), JOptionPane.class, null) : null;
+                    if (pane != null) {
+                        answer.accept(pane);
+                        return true;
+                    }
+                }
+                return false;
+            });
+            if (answered) {
+                // The handler submits its store change only after the modal loop returns; this
+                // round trip is dispatched by the outer loop, after the rest of the click handler,
+                // so settle() cannot flush the store before the change is queued
+                onEdt(() -> null);
+                return true;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(buttonText + " dialog did not appear");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    // Waits until the store has applied everything submitted and the EDT has drawn the result
+    private void settle(TaskStore store) {
+        store.flush().join();
+        robot.waitForIdle();
+    }
+
+    private boolean report(GcTotals gc, long peakHeap) {
+        System.out.printf(Locale.ROOT, "%n%-10s %8s %9s %9s %9s %9s%n", "action", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Action action : Action.values()) {
+            printRow(action.name().toLowerCase(Locale.ROOT), latencies.get(action).snapshot());
+        }
+        PerfMonitor.LatencyHistogram.Snapshot all = allLatencies.snapshot();
+        PerfMonitor.LatencyHistogram.Snapshot frames = PerfMonitor.histogram(PerfMonitor.Metric.PAINT_FRAME).snapshot();
+        printRow("all", all);
+        printRow("burst", burstLatencies.snapshot());
+        printRow("frame", frames);
+        printRow("edt event", PerfMonitor.histogram(PerfMonitor.Metric.EDT_EVENT).snapshot());
+        printRow("refresh", PerfMonitor.histogram(PerfMonitor.Metric.LIST_REFRESH).snapshot());
+        printRow("save", PerfMonitor.histogram(PerfMonitor.Metric.TASKS_SAVE).snapshot());
+        System.out.printf(Locale.ROOT, "%nGC: %d collections, %d ms total; peak heap %d MB%n%n",
+                gc.count, gc.millis, peakHeap >> 20);
+
+        boolean passed = true;
+        for (Action action : script.keySet()) {
+            if (latencies.get(action).snapshot().count == 0) {
+                System.out.printf(Locale.ROOT, "FAIL no %s samples recorded%n", action.name().toLowerCase(Locale.ROOT));
+                passed = false;
+            }
+        }
+        passed &= check("action p99", millis(all.p99), budgetP99Millis);
+        passed &= check("action max", millis(all.max), budgetMaxMillis);
+        passed &= check("frame p99", millis(frames.p99), budgetFrameP99Millis);
+        passed &= check("GC time", gc.millis, budgetGcMillis);
+        passed &= check("peak heap MB", peakHeap >> 20, budgetHeapMb);
+        System.out.println(passed ? "All budgets met" : "Budget exceeded");
+        return passed;
+    }
+
+    private static void printRow(String name, PerfMonitor.LatencyHistogram.Snapshot s) {
+        System.out.printf(Locale.ROOT, "%-10s %8d %9.1f %9.1f %9.1f %9.1f%n", name, s.count,
+                s.p50 / 1e6, s.p90 / 1e6, s.p99 / 1e6, s.max / 1e6);
+    }
+
+    private static boolean check(String name, long value, long budget) {
+        boolean ok = value <= budget;
+        System.out.printf(Locale.ROOT, "%-4s %-13s %6d (budget %d)%n", ok ? "ok" : "FAIL", name, value, budget);
+        return ok;
+    }
+
+    private Action nextAction() {
+        int total = 0;
+        for (int weight : script.values()) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (Map.Entry<Action, Integer> entry : script.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private String randomText() {
+        StringBuilder sb = new StringBuilder(WORDS[random.nextInt(WORDS.length)]).append(" item ").append(random.nextInt(100_000));
+        for (int i = random.nextInt(3); i > 0; i--) {
+            sb.append(' ').append(TAGS[random.nextInt(TAGS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static Map<Action, Integer> parseScript(String spec) {
+        Map<Action, Integer> weights = new EnumMap<>(Action.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad script entry '" + part + "', expected action:weight");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(Action.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Script has no actions: " + spec);
+        }
+        return weights;
+    }
+
+    // Depth-first search for the first component of a type, optionally a button with the given text
+    private static <T extends Component> T find(Component root, Class<T> type, String text) {
+        if (root == null) {
+            return null;
+        }
+        if (type.isInstance(root) && (text == null || text.equals(((AbstractButton) root).getText()))) {
+            return type.cast(root);
+        }
+        if (root instanceof Container) {
+            for (Component child : ((Container) root).getComponents()) {
+                T found = find(child, type, text);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <T> T onEdt(Callable<T> task) throws InterruptedException {
+        Object[] result = new Object[1];
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                try {
+                    result[0] = task.call();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed(); // per-pool peaks, so an upper bound
+            }
+        }
+        return peak;
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.getInteger("todo.stress." + name, defaultValue);
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not delete " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static final class GcTotals {
+        final long count;
+        final long millis;
+
+        GcTotals(long count, long millis) {
+            this.count = count;
+            this.millis = millis;
+        }
+
+        static GcTotals now() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(gc.getCollectionCount(), 0);
+                millis += Math.max(gc.getCollectionTime(), 0);
+            }
+            return new GcTotals(count, millis);
+        }
+
+        GcTotals minus(GcTotals other) {
+            return new GcTotals(count - other.count, millis - other.millis);
+        }
+    }
+}